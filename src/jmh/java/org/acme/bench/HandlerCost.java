@@ -0,0 +1,42 @@
+package org.acme.bench;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Work done by every stage of the benchmarked pipelines
+public enum HandlerCost {
+    NOOP {
+        @Override
+        int apply(int input) {
+            return input + 1;
+        }
+    },
+    CPU {
+        @Override
+        int apply(int input) {
+            Blackhole.consumeCPU(100);
+            return input + 1;
+        }
+    },
+    BLOCKING {
+        @Override
+        int apply(int input) {
+            LockSupport.parkNanos(20_000L);  // simulated 20us repository round-trip
+            return input + 1;
+        }
+    };
+
+    abstract int apply(int input);
+
+    Handler<Integer, Integer> handler() {
+        return this::apply;
+    }
+
+    MutinyHandler<Integer, Integer> mutinyHandler() {
+        return input -> Uni.createFrom().item(() -> apply(input));
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.bench;
+
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.CompiledPipeline;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-call cost of the execution modes against chain depth and handler cost.
+// Throughput and sampled latency come from the modes below, allocation rate from -prof gc.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineDepthBenchmark {
+
+    @Param({"1", "10", "30", "100"})
+    int depth;
+
+    @Param({"NOOP", "CPU", "BLOCKING"})
+    HandlerCost cost;
+
+    Pipeline<Integer, Integer> chained;
+    CompiledPipeline<Integer, Integer> compiled;
+    MutinyPipeline<Integer, Integer> mutiny;
+
+    @Setup
+    public void setUp() {
+        Handler<Integer, Integer> first = cost.handler();
+        Pipeline<Integer, Integer> pipeline = new Pipeline<>(first, new BaseTransactionContext());
+        MutinyHandler<Integer, Integer> firstAsync = cost.mutinyHandler();
+        MutinyPipeline<Integer, Integer> asyncPipeline = new MutinyPipeline<>(firstAsync);
+        for (int i = 1; i < depth; i++) {
+            pipeline = pipeline.addHandler(cost.handler());
+            asyncPipeline = asyncPipeline.addHandler(cost.mutinyHandler());
+        }
+        chained = pipeline;
+        compiled = pipeline.build();
+        mutiny = asyncPipeline;
+    }
+
+    @Benchmark
+    public Integer syncChained() {
+        return chained.execute(0);
+    }
+
+    @Benchmark
+    public Integer syncCompiled() {
+        return compiled.execute(0);
+    }
+
+    // Mutiny pipeline whose stages all complete on the calling thread
+    @Benchmark
+    public Integer mutinyImmediate() {
+        return mutiny.execute(0).await().indefinitely();
+    }
+
+    // Same pipeline, with the result handed over to the Mutiny worker pool
+    @Benchmark
+    public Integer mutinyAsync() {
+        return mutiny.execute(0)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .await().indefinitely();
+    }
+}
@@ -0,0 +1,85 @@
+package org.acme.bench;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.CompiledPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Failure path: the last stage throws and Pipeline.execute runs every registered rollback callback
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RollbackBenchmark {
+
+    // Preallocated so the benchmark measures the rollback loop, not stack trace capture
+    private static final RuntimeException FAILURE = new RuntimeException("stage failed", null, false, false) { };
+
+    @Param({"10"})
+    int depth;
+
+    @Param({"1", "10", "100"})
+    int callbacks;
+
+    @Param({"false", "true"})
+    boolean failingCallbacks;
+
+    Pipeline<Integer, Integer> chained;
+    CompiledPipeline<Integer, Integer> compiled;
+
+    @Setup
+    public void setUp() {
+        BaseTransactionContext context = new BaseTransactionContext();
+        for (int i = 0; i < callbacks; i++) {
+            context.addRollbackCallback(() -> {
+                Blackhole.consumeCPU(50);
+                if (failingCallbacks) {
+                    throw FAILURE;
+                }
+            });
+        }
+        Handler<Integer, Integer> first = HandlerCost.NOOP.handler();
+        Pipeline<Integer, Integer> pipeline = new Pipeline<>(first, context);
+        for (int i = 2; i < depth; i++) {
+            pipeline = pipeline.addHandler(HandlerCost.NOOP.handler());
+        }
+        chained = pipeline.addHandler(input -> {
+            throw FAILURE;
+        });
+        compiled = chained.build();
+    }
+
+    @Benchmark
+    public Object chainedFailure() {
+        try {
+            return chained.execute(0);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object compiledFailure() {
+        try {
+            return compiled.execute(0);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.acme.opt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Outcome of MaximizeResourceUsage: the quantity of each requirement entry of the IndexedProblem,
+// in one int array aligned with its rows. Stats are computed from the quantities; the name-keyed
+// maps are built only when asked for.
+public final class AllocationResult {
+    private final IndexedProblem problem;
+    private final int[] quantities;
+    private final boolean solved;
+    // Units used per resource id, computed on first use
+    private int[] used;
+
+    AllocationResult(IndexedProblem problem, int[] quantities, boolean solved) {
+        this.problem = problem;
+        this.quantities = quantities;
+        this.solved = solved;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public IndexedProblem getProblem() {
+        return problem;
+    }
+
+    public int projectCount() {
+        return problem.projectCount();
+    }
+
+    public Project project(int p) {
+        return problem.project(p);
+    }
+
+    // Quantity of the i-th requirement entry of the problem
+    public int quantity(int i) {
+        return quantities[i];
+    }
+
+    public int assigned(int p) {
+        int total = 0;
+        for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+            total += quantities[i];
+        }
+        return total;
+    }
+
+    public int required(int p) {
+        int total = 0;
+        for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+            total += problem.amount(i);
+        }
+        return total;
+    }
+
+    public double completion(int p) {
+        double totalRequirements = 0;
+        double totalFulfilled = 0;
+        for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+            totalRequirements += problem.amount(i);
+            totalFulfilled += Math.min(quantities[i], problem.amount(i));
+        }
+        return totalRequirements > 0 ? (totalFulfilled / totalRequirements) * 100 : 100.0;
+    }
+
+    public int used(int r) {
+        return usedByResource()[r];
+    }
+
+    public long totalUsed() {
+        long total = 0;
+        for (int quantity : quantities) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    public long totalCapacity() {
+        long total = 0;
+        for (int r = 0; r < problem.resourceCount(); r++) {
+            total += problem.capacity(r);
+        }
+        return total;
+    }
+
+    private int[] usedByResource() {
+        if (used == null) {
+            int[] counts = new int[problem.resourceCount()];
+            for (int i = 0; i < quantities.length; i++) {
+                counts[problem.resourceOf(i)] += quantities[i];
+            }
+            used = counts;
+        }
+        return used;
+    }
+
+    // Resource name -> assigned quantity, for the resources the project got any of
+    public Map<String, Integer> assignments(int p) {
+        Map<String, Integer> assignments = new LinkedHashMap<>();
+        for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+            if (quantities[i] > 0) {
+                assignments.put(problem.resource(problem.resourceOf(i)).getName(), quantities[i]);
+            }
+        }
+        return assignments;
+    }
+
+    // Resource name -> quantity still missing to fulfil the requirement
+    public Map<String, Integer> missing(int p) {
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+            if (quantities[i] < problem.amount(i)) {
+                missing.put(problem.resource(problem.resourceOf(i)).getName(), problem.amount(i) - quantities[i]);
+            }
+        }
+        return missing;
+    }
+
+    // Previous solve() format: one single-unit Resource per allocated unit, projects without any left out
+    public Map<Project, List<Resource>> toResourceLists() {
+        Map<Project, List<Resource>> assignments = new HashMap<>();
+        if (!solved) {
+            return assignments;
+        }
+        for (int p = 0; p < problem.projectCount(); p++) {
+            List<Resource> assignedResources = new ArrayList<>();
+            for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+                Resource resource = problem.resource(problem.resourceOf(i));
+                for (int unit = 0; unit < quantities[i]; unit++) {
+                    assignedResources.add(new Resource(resource.getName(), 1, resource.getCost()));
+                }
+            }
+            if (!assignedResources.isEmpty()) {
+                assignments.put(problem.project(p), assignedResources);
+            }
+        }
+        return assignments;
+    }
+}
@@ -0,0 +1,366 @@
+package org.acme.opt;
+
+import com.google.ortools.Loader;
+import com.google.ortools.linearsolver.MPConstraint;
+import com.google.ortools.linearsolver.MPObjective;
+import com.google.ortools.linearsolver.MPSolver;
+import com.google.ortools.linearsolver.MPSolverParameters;
+import com.google.ortools.linearsolver.MPVariable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Long-lived FeasibilitySolver model for re-solving after small changes. The MPSolver model is
+// built once, and every update only touches the bounds and coefficients it affects. GLOP keeps its
+// last basis between solves (incrementality on, presolve off), so a re-solve starts from the
+// previous optimum and needs a number of pivots in proportion to the change. MIP backends, when
+// asked for in the settings, solve the updated model from scratch.
+// Only pairs with a non-zero requirement get an allocation column, so the model grows with the
+// number of requirements rather than resources x projects.
+// Variables cannot be deleted from an MPSolver model: a removed project's columns are fixed to
+// zero, and the model is rebuilt once removed projects outnumber the live ones.
+public class FeasibilitySession implements AutoCloseable {
+    private static final double SLACK_PENALTY = 0.1;  // Reduced penalty to allow more slack
+
+    private final IndexedProblem problem;
+    // By resource id, with the current capacities
+    private final Resource[] resources;
+    private final Map<String, ProjectModel> projects = new LinkedHashMap<>();
+    private final SolverBackend backend;
+    private final SolverSettings settings;
+    // Warm start parameters, GLOP only
+    private final MPSolverParameters parameters;
+    private MPSolver solver;
+    private MPVariable[] slacks;
+    private MPConstraint[] capacityRows;
+    private MPConstraint[] singleAllocations;
+    private int retired;
+    private long sequence;
+
+    // Sparse row of one project: ascending resource ids, their amounts and their columns. An entry
+    // set to zero keeps its column, switched off. Results are keyed by the caller's Project until a
+    // requirement changes, then by one rebuilt from the row.
+    private static final class ProjectModel {
+        Project project;
+        boolean changed;
+        int size;
+        int[] resourceIds;
+        int[] amounts;
+        MPVariable[] allocations;
+        MPConstraint[] links;
+        MPVariable selected;
+        String suffix;
+
+        ProjectModel(Project project, int[] resourceIds, int[] amounts) {
+            this.project = project;
+            this.size = resourceIds.length;
+            this.resourceIds = resourceIds;
+            this.amounts = amounts;
+        }
+
+        int find(int r) {
+            return Arrays.binarySearch(resourceIds, 0, size, r);
+        }
+
+        void insert(int at, int r, int amount) {
+            if (size == resourceIds.length) {
+                int capacity = Math.max(4, size * 2);
+                resourceIds = Arrays.copyOf(resourceIds, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                allocations = Arrays.copyOf(allocations, capacity);
+                links = Arrays.copyOf(links, capacity);
+            }
+            System.arraycopy(resourceIds, at, resourceIds, at + 1, size - at);
+            System.arraycopy(amounts, at, amounts, at + 1, size - at);
+            System.arraycopy(allocations, at, allocations, at + 1, size - at);
+            System.arraycopy(links, at, links, at + 1, size - at);
+            resourceIds[at] = r;
+            amounts[at] = amount;
+            allocations[at] = null;
+            links[at] = null;
+            size++;
+        }
+    }
+
+    public FeasibilitySession(List<Resource> resources, List<Project> projects) {
+        this(resources, projects, SolverSettings.defaults());
+    }
+
+    public FeasibilitySession(List<Resource> resources, List<Project> projects, SolverSettings settings) {
+        Loader.loadNativeLibraries();
+        this.problem = IndexedProblem.of(resources, projects);
+        this.resources = new Resource[problem.resourceCount()];
+        for (int r = 0; r < this.resources.length; r++) {
+            this.resources[r] = problem.resource(r);
+        }
+        for (int p = 0; p < problem.projectCount(); p++) {
+            int from = problem.rowStart(p);
+            int[] resourceIds = new int[problem.rowEnd(p) - from];
+            int[] amounts = new int[resourceIds.length];
+            for (int i = 0; i < resourceIds.length; i++) {
+                resourceIds[i] = problem.resourceOf(from + i);
+                amounts[i] = problem.amount(from + i);
+            }
+            Project project = problem.project(p);
+            // IndexedProblem drops requirements on unknown resources, the session rejects them as addProject does
+            if (resourceIds.length != project.nonZeroCount()) {
+                throw new IllegalArgumentException("Unknown resource: " + unknownResource(project));
+            }
+            if (this.projects.putIfAbsent(project.getName(), new ProjectModel(project, resourceIds, amounts)) != null) {
+                throw new IllegalArgumentException("Duplicate project: " + project.getName());
+            }
+        }
+        // Selected projects are fixed to 1 and each allocation is tied to its project's selection, so
+        // the relaxation is exact; the backend is kept across rebuilds
+        this.settings = settings;
+        this.backend = settings.backendFor(problem.resourceCount() + problem.projectCount() + problem.nonZeroCount(), false);
+        if (backend == SolverBackend.GLOP) {
+            parameters = new MPSolverParameters();
+            parameters.setIntegerParam(MPSolverParameters.IntegerParam.INCREMENTALITY,
+                    MPSolverParameters.IncrementalityValues.INCREMENTALITY_ON.swigValue());
+            parameters.setIntegerParam(MPSolverParameters.IntegerParam.PRESOLVE,
+                    MPSolverParameters.PresolveValues.PRESOLVE_OFF.swigValue());
+        } else {
+            parameters = null;
+        }
+        build();
+    }
+
+    private void build() {
+        if (solver != null) {
+            solver.delete();
+        }
+        solver = settings.createSolver(backend);
+        int count = resources.length;
+        slacks = new MPVariable[count];
+        capacityRows = new MPConstraint[count];
+        singleAllocations = new MPConstraint[count];
+        MPObjective objective = solver.objective();
+        for (int r = 0; r < count; r++) {
+            String resource = resources[r].getName();
+            slacks[r] = solver.makeNumVar(0, Double.POSITIVE_INFINITY, "slack_" + resource);
+            objective.setCoefficient(slacks[r], -SLACK_PENALTY);
+            // Each resource can only be allocated to one project
+            singleAllocations[r] = solver.makeConstraint(0, 1, "single_alloc_" + resource);
+            // Resource capacity and requirements
+            capacityRows[r] = solver.makeConstraint(-Double.POSITIVE_INFINITY, resources[r].getAvailableCapacity(),
+                    "capacity_" + resource);
+            capacityRows[r].setCoefficient(slacks[r], -1);
+        }
+        objective.setMaximization();
+        for (ProjectModel model : projects.values()) {
+            addColumns(model);
+        }
+        retired = 0;
+    }
+
+    // The selection variable and one allocation column per required resource
+    private void addColumns(ProjectModel model) {
+        model.suffix = model.project.getName() + "_" + sequence++;
+        model.selected = solver.makeIntVar(1, 1, "project_" + model.suffix);  // Force selection
+        solver.objective().setCoefficient(model.selected, 1.0);
+        model.allocations = new MPVariable[model.resourceIds.length];
+        model.links = new MPConstraint[model.resourceIds.length];
+        for (int k = 0; k < model.size; k++) {
+            if (model.amounts[k] != 0) {
+                addColumn(model, k);
+            }
+        }
+    }
+
+    private void addColumn(ProjectModel model, int k) {
+        String resource = resources[model.resourceIds[k]].getName();
+        MPVariable allocation = solver.makeIntVar(0, 1, "alloc_" + resource + "_" + model.suffix);
+        // Resource allocation only if project is selected
+        MPConstraint link = solver.makeConstraint(0, 0, "alloc_requires_project_" + resource + "_" + model.suffix);
+        link.setCoefficient(allocation, 1);
+        link.setCoefficient(model.selected, -1);
+        model.allocations[k] = allocation;
+        model.links[k] = link;
+        applyRequirement(model, k);
+    }
+
+    // A zero requirement leaves the column in the model but out of every row that matters
+    private void applyRequirement(ProjectModel model, int k) {
+        int r = model.resourceIds[k];
+        int amount = model.amounts[k];
+        MPVariable allocation = model.allocations[k];
+        capacityRows[r].setCoefficient(allocation, amount);
+        singleAllocations[r].setCoefficient(allocation, amount != 0 ? 1 : 0);
+        if (amount != 0) {
+            model.links[k].setBounds(0, 0);
+        } else {
+            model.links[k].setBounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    public void setCapacity(String resourceName, int capacity) {
+        int r = resource(resourceName);
+        resources[r] = new Resource(resources[r].getName(), capacity, resources[r].getCost());
+        capacityRows[r].setBounds(-Double.POSITIVE_INFINITY, capacity);
+    }
+
+    public void setRequirement(String projectName, String resourceName, int requirement) {
+        ProjectModel model = project(projectName);
+        int r = resource(resourceName);
+        int k = model.find(r);
+        if (k < 0) {
+            if (requirement == 0) {
+                return;
+            }
+            k = -k - 1;
+            model.insert(k, r, requirement);
+        } else {
+            model.amounts[k] = requirement;
+        }
+        model.changed = true;
+        if (model.allocations[k] == null) {
+            if (requirement != 0) {
+                addColumn(model, k);
+            }
+        } else {
+            applyRequirement(model, k);
+        }
+    }
+
+    public void addProject(Project project) {
+        // Row over this problem's resource ids, ascending
+        long[] row = new long[project.nonZeroCount()];
+        int length = 0;
+        for (int i = 0; i < project.nonZeroCount(); i++) {
+            int r = resource(project.getIndex().name(project.resourceId(i)));
+            row[length++] = ((long) r << 32) | (project.amount(i) & 0xFFFFFFFFL);
+        }
+        Arrays.sort(row, 0, length);
+        int[] resourceIds = new int[length];
+        int[] amounts = new int[length];
+        for (int i = 0; i < length; i++) {
+            resourceIds[i] = (int) (row[i] >>> 32);
+            amounts[i] = (int) row[i];
+        }
+        ProjectModel model = new ProjectModel(project, resourceIds, amounts);
+        if (projects.putIfAbsent(project.getName(), model) != null) {
+            throw new IllegalArgumentException("Duplicate project: " + project.getName());
+        }
+        addColumns(model);
+    }
+
+    public void removeProject(String projectName) {
+        ProjectModel model = project(projectName);
+        projects.remove(projectName);
+        // Fixed to zero the columns drop out of every row and of the objective
+        model.selected.setBounds(0, 0);
+        for (int k = 0; k < model.size; k++) {
+            if (model.allocations[k] != null) {
+                model.allocations[k].setBounds(0, 0);
+            }
+        }
+        retired++;
+    }
+
+    public FeasibilityResult solve() {
+        if (retired > projects.size()) {
+            build();
+        }
+        MPSolver.ResultStatus status = parameters != null ? solver.solve(parameters) : solver.solve();
+        // Without a solution the solution values are meaningless: nothing is reported
+        if (status != MPSolver.ResultStatus.OPTIMAL && status != MPSolver.ResultStatus.FEASIBLE) {
+            return new FeasibilityResult(false, Map.of(), Map.of(), Map.of());
+        }
+
+        Map<Project, Boolean> projectResults = new HashMap<>();
+        Map<Resource, Double> slackResults = new HashMap<>();
+        Map<Project, Double> completionPercentages = new HashMap<>();
+        for (int r = 0; r < resources.length; r++) {
+            slackResults.put(resources[r], slacks[r].solutionValue());
+        }
+        // First project, in order, each resource is allocated to
+        ProjectModel[] allocatedTo = new ProjectModel[resources.length];
+        for (ProjectModel model : projects.values()) {
+            for (int k = 0; k < model.size; k++) {
+                int r = model.resourceIds[k];
+                if (allocatedTo[r] == null && model.amounts[k] != 0 && model.allocations[k].solutionValue() > 0.5) {
+                    allocatedTo[r] = model;
+                }
+            }
+        }
+        for (ProjectModel model : projects.values()) {
+            if (model.changed) {
+                model.project = Project.fromRow(model.project.getName(), problem.getIndex(),
+                        model.resourceIds, model.amounts, model.size);
+                model.changed = false;
+            }
+            projectResults.put(model.project, model.selected.solutionValue() > 0.5);
+            completionPercentages.put(model.project, completionPercentage(model, allocatedTo));
+        }
+        return new FeasibilityResult(true, projectResults, slackResults, completionPercentages);
+    }
+
+    private double completionPercentage(ProjectModel model, ProjectModel[] allocatedTo) {
+        double totalRequirements = 0;
+        double totalFulfilled = 0;
+        for (int k = 0; k < model.size; k++) {
+            int r = model.resourceIds[k];
+            int requirement = model.amounts[k];
+            if (requirement > 0) {
+                totalRequirements += requirement;
+                // Only count fulfilled if resource is allocated to this project
+                if (allocatedTo[r] == model) {
+                    totalFulfilled += Math.min(requirement, resources[r].getAvailableCapacity());
+                }
+            }
+        }
+        return totalRequirements > 0 ? (totalFulfilled / totalRequirements) * 100 : 100.0;
+    }
+
+    // First resource the project requires that this session does not have
+    private String unknownResource(Project project) {
+        for (int i = 0; i < project.nonZeroCount(); i++) {
+            String name = project.getIndex().name(project.resourceId(i));
+            if (problem.resourceId(name) < 0) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private int resource(String name) {
+        int r = problem.resourceId(name);
+        if (r < 0) {
+            throw new IllegalArgumentException("Unknown resource: " + name);
+        }
+        return r;
+    }
+
+    private ProjectModel project(String name) {
+        ProjectModel model = projects.get(name);
+        if (model == null) {
+            throw new IllegalArgumentException("Unknown project: " + name);
+        }
+        return model;
+    }
+
+    public int getProjectCount() {
+        return projects.size();
+    }
+
+    // Variables in the model, removed projects' columns included until the next rebuild
+    public int getVariableCount() {
+        return solver.numVariables();
+    }
+
+    @Override
+    public void close() {
+        solver.delete();
+        if (parameters != null) {
+            parameters.delete();
+        }
+    }
+
+    public SolverBackend getBackend() {
+        return backend;
+    }
+}
@@ -0,0 +1,152 @@
+package org.acme.opt;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Solver-side view of a problem: resources and projects interned to dense int ids, and the
+// non-zero requirements stored row by row (one row per project, sorted by resource id) in flat
+// arrays, i.e. CSR. Projects whose rows use the same ResourceIndex are copied as is; others are
+// translated by name once per distinct index. The solvers then work on ids only.
+public final class IndexedProblem {
+    // Translation marker for project rows that already use this problem's ids
+    private static final int[] SAME_IDS = new int[0];
+
+    private final Resource[] resources;
+    private final Project[] projects;
+    private final ResourceIndex index;
+    private final int[] capacities;
+    // Row p holds entries rowStart[p] until rowStart[p + 1]
+    private final int[] rowStart;
+    private final int[] resourceOf;
+    private final int[] amounts;
+
+    private IndexedProblem(Resource[] resources, Project[] projects, ResourceIndex index,
+                           int[] rowStart, int[] resourceOf, int[] amounts) {
+        this.resources = resources;
+        this.projects = projects;
+        this.index = index;
+        this.capacities = new int[resources.length];
+        for (int r = 0; r < resources.length; r++) {
+            capacities[r] = resources[r].getAvailableCapacity();
+        }
+        this.rowStart = rowStart;
+        this.resourceOf = resourceOf;
+        this.amounts = amounts;
+    }
+
+    // Requirements on resources that are not in the list are dropped
+    public static IndexedProblem of(List<Resource> resources, List<Project> projects) {
+        ResourceIndex index = ResourceIndex.of(resources);
+        // Project index -> ids in this problem, worked out once per distinct index
+        Map<ResourceIndex, int[]> translations = new IdentityHashMap<>();
+        int[] rowStart = new int[projects.size() + 1];
+        int nonZeros = 0;
+        for (Project project : projects) {
+            nonZeros += project.nonZeroCount();
+        }
+        int[] resourceOf = new int[nonZeros];
+        int[] amounts = new int[nonZeros];
+        int count = 0;
+        long[] row = new long[0];
+        for (int p = 0; p < projects.size(); p++) {
+            Project project = projects.get(p);
+            int[] translation = translations.computeIfAbsent(project.getIndex(), own -> translation(own, index));
+            if (translation == SAME_IDS) {
+                // Rows are already ascending by id
+                for (int i = 0; i < project.nonZeroCount(); i++) {
+                    resourceOf[count] = project.resourceId(i);
+                    amounts[count++] = project.amount(i);
+                }
+            } else {
+                if (row.length < project.nonZeroCount()) {
+                    row = new long[project.nonZeroCount()];
+                }
+                int length = 0;
+                for (int i = 0; i < project.nonZeroCount(); i++) {
+                    int r = translation[project.resourceId(i)];
+                    if (r >= 0) {
+                        // Resource id in the high half so the row sorts by resource
+                        row[length++] = ((long) r << 32) | (project.amount(i) & 0xFFFFFFFFL);
+                    }
+                }
+                Arrays.sort(row, 0, length);
+                for (int i = 0; i < length; i++) {
+                    resourceOf[count] = (int) (row[i] >>> 32);
+                    amounts[count++] = (int) row[i];
+                }
+            }
+            rowStart[p + 1] = count;
+        }
+        return new IndexedProblem(resources.toArray(Resource[]::new), projects.toArray(Project[]::new), index,
+                rowStart, Arrays.copyOf(resourceOf, count), Arrays.copyOf(amounts, count));
+    }
+
+    private static int[] translation(ResourceIndex from, ResourceIndex to) {
+        if (from.sameAs(to)) {
+            return SAME_IDS;
+        }
+        int[] translation = new int[from.size()];
+        for (int id = 0; id < from.size(); id++) {
+            translation[id] = to.id(from.name(id));
+        }
+        return translation;
+    }
+
+    public int resourceCount() {
+        return resources.length;
+    }
+
+    public int projectCount() {
+        return projects.length;
+    }
+
+    public int nonZeroCount() {
+        return resourceOf.length;
+    }
+
+    public Resource resource(int r) {
+        return resources[r];
+    }
+
+    public Project project(int p) {
+        return projects[p];
+    }
+
+    public ResourceIndex getIndex() {
+        return index;
+    }
+
+    // -1 for names that are not in the problem
+    public int resourceId(String name) {
+        return index.id(name);
+    }
+
+    public int capacity(int r) {
+        return capacities[r];
+    }
+
+    public int rowStart(int p) {
+        return rowStart[p];
+    }
+
+    public int rowEnd(int p) {
+        return rowStart[p + 1];
+    }
+
+    // Resource and amount of the i-th non-zero entry
+    public int resourceOf(int i) {
+        return resourceOf[i];
+    }
+
+    public int amount(int i) {
+        return amounts[i];
+    }
+
+    // Requirement of project p on resource r, by binary search in the row
+    public int requirement(int p, int r) {
+        int i = Arrays.binarySearch(resourceOf, rowStart[p], rowStart[p + 1], r);
+        return i < 0 ? 0 : amounts[i];
+    }
+}
@@ -1,119 +1,81 @@
 package org.acme.opt;
 
-import lombok.AllArgsConstructor;
-
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.google.ortools.Loader;
 import com.google.ortools.linearsolver.MPConstraint;
 import com.google.ortools.linearsolver.MPObjective;
 import com.google.ortools.linearsolver.MPSolver;
 import com.google.ortools.linearsolver.MPVariable;
 
-@AllArgsConstructor
 public class MaximizeResourceUsage {
     private final List<Resource> resources;
     private final List<Project> projects;
-    public Map<Project, List<Resource>> solve() {
-        Loader.loadNativeLibraries();
-        MPSolver solver = MPSolver.createSolver("GLOP");
-
-        // Create decision variables x[i][j] representing the quantity of resource i assigned to project j
-        Map<Resource, Map<Project, MPVariable>> x = new HashMap<>();
-        for (Resource resource : resources) {
-            Map<Project, MPVariable> projectVars = new HashMap<>();
-            for (Project project : projects) {
-                String varName = String.format("x_%s_%s", resource.getName(), project.getName());
-                // Upper bound is the minimum between resource capacity and project requirement
-                int upperBound = Math.min(
-                        resource.getAvailableCapacity(),
-                        project.getRequirements().getOrDefault(resource.getName(), 0)
-                );
-                projectVars.put(project, solver.makeIntVar(0, upperBound, varName));
-            }
-            x.put(resource, projectVars);
-        }
+    private final SolverSettings settings;
 
-        // Objective: Minimize cost while maximizing resource utilization
-        MPObjective objective = solver.objective();
+    public MaximizeResourceUsage(List<Resource> resources, List<Project> projects) {
+        this(resources, projects, SolverSettings.defaults());
+    }
 
-        // Cost minimization component
-        for (Resource resource : resources) {
-            for (Project project : projects) {
-                // Assuming Resource class has a getCost() method that returns cost per unit
-                objective.setCoefficient(x.get(resource).get(project), resource.getCost());
-            }
-        }
+    public MaximizeResourceUsage(List<Resource> resources, List<Project> projects, SolverSettings settings) {
+        this.resources = resources;
+        this.projects = projects;
+        this.settings = settings;
+    }
 
-        // Resource utilization component (negative coefficient to maximize)
-        for (Resource resource : resources) {
-            for (Project project : projects) {
-                // Add a small negative weight to encourage resource utilization
-                objective.setCoefficient(x.get(resource).get(project), -0.1);
-            }
-        }
+    // Same outcome as allocate(), as one single-unit Resource per allocated unit
+    public Map<Project, List<Resource>> solve() {
+        return allocate().toResourceLists();
+    }
 
-        objective.setMinimization();
+    public AllocationResult allocate() {
+        IndexedProblem problem = IndexedProblem.of(resources, projects);
+        // Each variable is in a single capacity row, with coefficient 1 and integer bounds: the LP
+        // optimum is integral, so no branching is needed unless a MIP backend is asked for
+        MPSolver solver = settings.createSolver(problem.nonZeroCount(), false);
 
         // Constraint 1: Don't exceed resource capacity
-        for (Resource resource : resources) {
-            MPConstraint capacityConstraint = solver.makeConstraint(
-                    0,
-                    resource.getAvailableCapacity(),
-                    "capacity_" + resource.getName()
-            );
-            for (Project project : projects) {
-                capacityConstraint.setCoefficient(x.get(resource).get(project), 1);
-            }
+        MPConstraint[] capacityConstraints = new MPConstraint[problem.resourceCount()];
+        for (int r = 0; r < problem.resourceCount(); r++) {
+            capacityConstraints[r] = solver.makeConstraint(0, problem.capacity(r),
+                    "capacity_" + problem.resource(r).getName());
         }
 
-        // Constraint 2: Don't exceed project requirements
-        for (Project project : projects) {
-            for (Resource resource : resources) {
-                int requirement = project.getRequirements().getOrDefault(resource.getName(), 0);
-                if (requirement > 0) {
-                    MPConstraint requirementConstraint = solver.makeConstraint(
-                            0,
-                            requirement,
-                            String.format("requirement_%s_%s", project.getName(), resource.getName())
-                    );
-                    requirementConstraint.setCoefficient(x.get(resource).get(project), 1);
-                }
+        // x[i] is the quantity of a resource assigned to a project, one per non-zero requirement:
+        // a pair without requirement has an upper bound of 0 and is left out
+        MPObjective objective = solver.objective();
+        MPVariable[] x = new MPVariable[problem.nonZeroCount()];
+        for (int p = 0; p < problem.projectCount(); p++) {
+            String projectName = problem.project(p).getName();
+            for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+                int r = problem.resourceOf(i);
+                // Upper bound is the minimum between resource capacity and project requirement,
+                // which also keeps the quantity within the requirement (constraint 2)
+                int upperBound = Math.max(0, Math.min(problem.capacity(r), problem.amount(i)));
+                x[i] = solver.makeIntVar(0, upperBound, "x_" + problem.resource(r).getName() + "_" + projectName);
+                // Small negative weight to encourage resource utilization; it always replaced the
+                // per-unit cost set on the same variable, so the cost term is not part of the objective
+                objective.setCoefficient(x[i], -0.1);
+                capacityConstraints[r].setCoefficient(x[i], 1);
             }
         }
+        objective.setMinimization();
 
         // Solve the problem
         MPSolver.ResultStatus status = solver.solve();
 
         // Process results
-        Map<Project, List<Resource>> assignments = new HashMap<>();
-        if (status == MPSolver.ResultStatus.OPTIMAL || status == MPSolver.ResultStatus.FEASIBLE) {
-            for (Project project : projects) {
-                List<Resource> assignedResources = new ArrayList<>();
-                for (Resource resource : resources) {
-                    double quantity = x.get(resource).get(project).solutionValue();
-                    // If any quantity of this resource is assigned to this project
-                    if (quantity > 0) {
-                        // Create new resource instances with the assigned quantity
-                        for (int i = 0; i < (int)quantity; i++) {
-                            assignedResources.add(new Resource(
-                                    resource.getName(),
-                                    1,  // One unit per instance
-                                    resource.getCost()
-                            ));
-                        }
-                    }
-                }
-                if (!assignedResources.isEmpty()) {
-                    assignments.put(project, assignedResources);
-                }
+        boolean solved = status == MPSolver.ResultStatus.OPTIMAL || status == MPSolver.ResultStatus.FEASIBLE;
+        int[] quantities = new int[x.length];
+        if (solved) {
+            for (int i = 0; i < x.length; i++) {
+                quantities[i] = (int) Math.round(x[i].solutionValue());
             }
         }
+        solver.delete();
 
-        return assignments;
+        return new AllocationResult(problem, quantities, solved);
     }
 
     // Helper method to calculate project completion percentage
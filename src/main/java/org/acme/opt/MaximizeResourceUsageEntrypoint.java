@@ -1,7 +1,7 @@
 package org.acme.opt;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Map;
 
 public class MaximizeResourceUsageEntrypoint {
     public static void main(String[] args) {
@@ -23,44 +23,32 @@ public class MaximizeResourceUsageEntrypoint {
 
         // Solve feasibility
         var solver = new MaximizeResourceUsage(resources, projects);
-        var result = solver.solve();
+        AllocationResult result = solver.allocate();
+        IndexedProblem problem = result.getProblem();
 
         // Added Code: Unified Statistics Summary
         System.out.println("\n=== FEASIBILITY STATS SUMMARY ===\n");
 
-        // Per-Project Stats
+        // Per-Project Stats, for the projects that got any resource
         System.out.println("Per-Project Stats:");
-        for (Map.Entry<Project, List<Resource>> entry : result.entrySet()) {
-            Project project = entry.getKey();
-            List<Resource> assigned = entry.getValue();
-            double completion = solver.calculateProjectCompletion(project, assigned);
-
-            Map<String, Integer> assignmentCount = assigned.stream()
-                    .collect(Collectors.groupingBy(
-                            Resource::getName,
-                            Collectors.collectingAndThen(Collectors.counting(), Long::intValue)
-                    ));
-            // Calculate missing resources to complete the project's requirements.
-            Map<String, Integer> missingResources = new HashMap<>();
-            Map<String, Integer> requirements = project.getRequirements();
-            for (Map.Entry<String, Integer> reqEntry : requirements.entrySet()) {
-                String resourceName = reqEntry.getKey();
-                int required = reqEntry.getValue();
-                int assignedCount = assignmentCount.getOrDefault(resourceName, 0);
-                if (assignedCount < required) {
-                    missingResources.put(resourceName, required - assignedCount);
-                }
+        for (int p = 0; p < result.projectCount(); p++) {
+            int assigned = result.assigned(p);
+            if (assigned == 0) {
+                continue;
             }
+            Project project = result.project(p);
+            Map<String, Integer> missingResources = result.missing(p);
 
             System.out.printf("Project %s: Completion = %.2f%%, Resources Assigned = %d%n",
-                    project.getName(), completion, assigned.size());
+                    project.getName(), result.completion(p), assigned);
             System.out.println("   Assigned Resources:");
-            assignmentCount.forEach((res, count) ->
+            result.assignments(p).forEach((res, count) ->
                     System.out.printf("      %s: %d%n", res, count));
 
             System.out.println("   Required Resources:");
-            requirements.forEach((res, count) ->
-                    System.out.printf("      %s: %d%n", res, count));
+            for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+                System.out.printf("      %s: %d%n", problem.resource(problem.resourceOf(i)).getName(), problem.amount(i));
+            }
 
             if (!missingResources.isEmpty()) {
                 System.out.println("   Missing Resources:");
@@ -72,8 +60,8 @@ public class MaximizeResourceUsageEntrypoint {
         }
 
         // Global Stats
-        int totalAvailable = resources.stream().mapToInt(Resource::getAvailableCapacity).sum();
-        int totalUsed = result.values().stream().mapToInt(List::size).sum();
+        long totalAvailable = result.totalCapacity();
+        long totalUsed = result.totalUsed();
         double avgUsed = (double) totalUsed / projects.size();
         System.out.println("\nGlobal Stats:");
         System.out.printf("Total Resources Available: %d%n", totalAvailable);
@@ -81,36 +69,39 @@ public class MaximizeResourceUsageEntrypoint {
         System.out.printf("Average Resources per Project: %.2f%n", avgUsed);
         System.out.printf("Unused Resources: %d%n", totalAvailable - totalUsed);
 
-        // Global Resource Assignment Breakdown
-        Map<String, Integer> globalAssignment = result.values().stream()
-                .flatMap(List::stream)
-                .collect(Collectors.groupingBy(
-                        Resource::getName,
-                        Collectors.collectingAndThen(Collectors.counting(), Long::intValue)
-                ));
+        // Global Resource Assignment Breakdown, with the Most/Least Assigned Resources among the used ones
         System.out.println("\nGlobal Resource Assignment Breakdown:");
-        globalAssignment.forEach((res, count) ->
-                System.out.printf("Resource %s: Assigned %d times%n", res, count));
-
-        // Additional Interesting Stats: Most/Least Assigned Resources
-        Optional<Map.Entry<String, Integer>> mostAssigned = globalAssignment.entrySet().stream()
-                .max(Map.Entry.comparingByValue());
-        Optional<Map.Entry<String, Integer>> leastAssigned = globalAssignment.entrySet().stream()
-                .min(Map.Entry.comparingByValue());
-
-        mostAssigned.ifPresent(entry ->
-                System.out.printf("\nMost Assigned Resource: %s (%d times)%n", entry.getKey(), entry.getValue()));
-        leastAssigned.ifPresent(entry ->
-                System.out.printf("Least Assigned Resource: %s (%d times)%n", entry.getKey(), entry.getValue()));
+        int mostAssigned = -1;
+        int leastAssigned = -1;
+        for (int r = 0; r < problem.resourceCount(); r++) {
+            int used = result.used(r);
+            if (used == 0) {
+                continue;
+            }
+            System.out.printf("Resource %s: Assigned %d times%n", problem.resource(r).getName(), used);
+            if (mostAssigned < 0 || used > result.used(mostAssigned)) {
+                mostAssigned = r;
+            }
+            if (leastAssigned < 0 || used < result.used(leastAssigned)) {
+                leastAssigned = r;
+            }
+        }
+        if (mostAssigned >= 0) {
+            System.out.printf("\nMost Assigned Resource: %s (%d times)%n",
+                    problem.resource(mostAssigned).getName(), result.used(mostAssigned));
+            System.out.printf("Least Assigned Resource: %s (%d times)%n",
+                    problem.resource(leastAssigned).getName(), result.used(leastAssigned));
+        }
 
         // Per Resource Stats
         System.out.println("\nPer Resource Stats:");
-        for (Resource resource : resources) {
+        for (int r = 0; r < problem.resourceCount(); r++) {
+            Resource resource = problem.resource(r);
             System.out.printf("Resource %s: Capacity = %d, Cost = %d, Assigned Count = %d%n",
                     resource.getName(),
                     resource.getAvailableCapacity(),
                     resource.getCost(),
-                    globalAssignment.getOrDefault(resource.getName(), 0));
+                    result.used(r));
         }
 
     }
@@ -59,12 +59,11 @@ public class OrTools {
             System.out.println("Project " + p + ": " + projectRequirements.get(p));
         }
 
-        // Create the MPSolver model using CBC (we need MIP capabilities).
-        MPSolver solver = MPSolver.createSolver("CBC_MIXED_INTEGER_PROGRAMMING");
-        if (solver == null) {
-            System.out.println("Could not create solver.");
-            return;
-        }
+        // Create the MPSolver model with a MIP backend: relaxed, x could be fractional.
+        SolverSettings settings = SolverSettings.defaults();
+        int numVariables = numProjects + numResources;
+        System.out.println("\nSolver backend: " + settings.backendFor(numVariables, true));
+        MPSolver solver = settings.createSolver(numVariables, true);
 
         // Start timing the model building and solving.
         long startTime = System.nanoTime();
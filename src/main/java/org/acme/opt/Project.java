@@ -1,16 +1,155 @@
 package org.acme.opt;
 
-import io.quarkus.arc.All;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.util.Collections;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
-@AllArgsConstructor
-@Getter
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Requirements are one sparse row: the ids of the required resources in an index, ascending, with
+// their non-zero amounts. getRequirements() is a read-only map view over the row.
 public class Project {
+    @Getter
     private final String name;
-    private final Map<String, Integer> resourceRequirements;
+    @Getter
+    private final ResourceIndex index;
+    private final int[] resourceIds;
+    private final int[] amounts;
+
+    public Project(String name, Map<String, Integer> resourceRequirements) {
+        this.name = name;
+        String[] names = resourceRequirements.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toArray(String[]::new);
+        this.index = ResourceIndex.ofNames(names);
+        this.resourceIds = new int[names.length];
+        this.amounts = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            resourceIds[i] = i;
+            amounts[i] = resourceRequirements.get(names[i]);
+        }
+    }
+
+    private Project(String name, ResourceIndex index, int[] resourceIds, int[] amounts) {
+        this.name = name;
+        this.index = index;
+        this.resourceIds = resourceIds;
+        this.amounts = amounts;
+    }
+
+    // Row from requirements by resource id of the index; zero entries are left out
+    public static Project fromDense(String name, ResourceIndex index, int[] requirements) {
+        int count = 0;
+        for (int requirement : requirements) {
+            if (requirement != 0) {
+                count++;
+            }
+        }
+        int[] resourceIds = new int[count];
+        int[] amounts = new int[count];
+        int next = 0;
+        for (int id = 0; id < requirements.length; id++) {
+            if (requirements[id] != 0) {
+                resourceIds[next] = id;
+                amounts[next++] = requirements[id];
+            }
+        }
+        return new Project(name, index, resourceIds, amounts);
+    }
+
+    // Row from the first length entries of ascending ids and their amounts; zero entries are left out
+    static Project fromRow(String name, ResourceIndex index, int[] resourceIds, int[] amounts, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (amounts[i] != 0) {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        int[] values = new int[count];
+        int next = 0;
+        for (int i = 0; i < length; i++) {
+            if (amounts[i] != 0) {
+                ids[next] = resourceIds[i];
+                values[next++] = amounts[i];
+            }
+        }
+        return new Project(name, index, ids, values);
+    }
+
+    public int nonZeroCount() {
+        return resourceIds.length;
+    }
+
+    // Id in getIndex() and amount of the i-th required resource
+    public int resourceId(int i) {
+        return resourceIds[i];
+    }
+
+    public int amount(int i) {
+        return amounts[i];
+    }
+
+    public int getRequirement(String resourceName) {
+        int id = index.id(resourceName);
+        int i = id < 0 ? -1 : Arrays.binarySearch(resourceIds, id);
+        return i < 0 ? 0 : amounts[i];
+    }
+
+    public Map<String, Integer> getRequirements() {
+        return new AbstractMap<>() {
+            @Override
+            public Integer get(Object key) {
+                int requirement = key instanceof String resourceName ? getRequirement(resourceName) : 0;
+                return requirement == 0 ? null : requirement;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return resourceIds.length;
+            }
+
+            @Override
+            public Set<Entry<String, Integer>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        return resourceIds.length;
+                    }
+
+                    @Override
+                    public Iterator<Entry<String, Integer>> iterator() {
+                        return new Iterator<>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < resourceIds.length;
+                            }
 
-    public Map<String, Integer> getRequirements() { return Collections.unmodifiableMap(resourceRequirements); }
+                            @Override
+                            public Entry<String, Integer> next() {
+                                if (next >= resourceIds.length) {
+                                    throw new NoSuchElementException();
+                                }
+                                int i = next++;
+                                return new SimpleImmutableEntry<>(index.name(resourceIds[i]), amounts[i]);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
 }
@@ -17,10 +17,12 @@ class ProjectGenerator {
     private final RequirementProfile profile;
     private final double utilizationTarget;  // Target resource utilization (0.0 to 1.0)
     private final Random random;
+    private final ResourceIndex index;
 
     private ProjectGenerator(Builder builder) {
         this.numProjects = builder.numProjects;
         this.resources = builder.resources;
+        this.index = ResourceIndex.of(builder.resources);
         this.profile = builder.profile;
         this.utilizationTarget = builder.utilizationTarget;
         this.random = new Random(builder.seed);
@@ -40,99 +42,97 @@ class ProjectGenerator {
         return projects;
     }
 
+    // Requirements are filled by resource id and kept as a sparse row over the shared index
+    private Project project(int i, int[] requirements) {
+        return Project.fromDense("Project" + i, index, requirements);
+    }
+
     private void generateBalancedProjects(List<Project> projects) {
         for (int i = 0; i < numProjects; i++) {
-            Map<String, Integer> requirements = new HashMap<>();
-            for (Resource resource : resources) {
-                int capacity = resource.getAvailableCapacity();
+            int[] requirements = new int[resources.size()];
+            for (int r = 0; r < resources.size(); r++) {
+                int capacity = resources.get(r).getAvailableCapacity();
                 int maxReq = (int) (capacity * utilizationTarget / numProjects);
-                requirements.put(resource.getName(), maxReq + random.nextInt(maxReq/2));
+                requirements[r] = maxReq + random.nextInt(maxReq/2);
             }
-            projects.add(new Project("Project" + i, requirements));
+            projects.add(project(i, requirements));
         }
     }
 
     private void generateSparseProjects(List<Project> projects) {
         for (int i = 0; i < numProjects; i++) {
-            Map<String, Integer> requirements = new HashMap<>();
+            int[] requirements = new int[resources.size()];
             int numRequiredResources = Math.max(1, resources.size() / 5);  // Use 20% of resources
 
-            List<Resource> shuffledResources = new ArrayList<>(resources);
+            List<Integer> shuffledResources = new ArrayList<>(resources.size());
+            for (int r = 0; r < resources.size(); r++) {
+                shuffledResources.add(r);
+            }
             Collections.shuffle(shuffledResources, random);
 
             for (int j = 0; j < numRequiredResources; j++) {
-                Resource resource = shuffledResources.get(j);
-                int capacity = resource.getAvailableCapacity();
+                int r = shuffledResources.get(j);
+                int capacity = resources.get(r).getAvailableCapacity();
                 int maxReq = (int) (capacity * utilizationTarget);
-                requirements.put(resource.getName(), maxReq + random.nextInt(maxReq/2));
+                requirements[r] = maxReq + random.nextInt(maxReq/2);
             }
-            projects.add(new Project("Project" + i, requirements));
+            projects.add(project(i, requirements));
         }
     }
 
     private void generateComplementaryProjects(List<Project> projects) {
-        // Divide resources into groups
-        List<List<Resource>> resourceGroups = new ArrayList<>();
-        List<Resource> remainingResources = new ArrayList<>(resources);
-
-        while (!remainingResources.isEmpty()) {
-            int groupSize = Math.min(remainingResources.size(),
-                    Math.max(1, resources.size() / numProjects));
-            List<Resource> group = remainingResources.subList(0, groupSize);
-            resourceGroups.add(new ArrayList<>(group));
-            remainingResources = remainingResources.subList(groupSize, remainingResources.size());
-        }
+        // Divide resources into groups of consecutive ids, group g starts at g * groupSize
+        int groupSize = Math.max(1, resources.size() / numProjects);
+        int groupCount = (resources.size() + groupSize - 1) / groupSize;
 
         // Generate projects that primarily use one group
         for (int i = 0; i < numProjects; i++) {
-            Map<String, Integer> requirements = new HashMap<>();
-            List<Resource> primaryGroup = resourceGroups.get(i % resourceGroups.size());
+            int[] requirements = new int[resources.size()];
+            int groupStart = (i % groupCount) * groupSize;
+            int groupEnd = Math.min(resources.size(), groupStart + groupSize);
 
             // High requirements for primary group
-            for (Resource resource : primaryGroup) {
-                int capacity = resource.getAvailableCapacity();
+            for (int r = groupStart; r < groupEnd; r++) {
+                int capacity = resources.get(r).getAvailableCapacity();
                 int maxReq = (int) (capacity * utilizationTarget);
-                requirements.put(resource.getName(), maxReq + random.nextInt(maxReq/2));
+                requirements[r] = maxReq + random.nextInt(maxReq/2);
             }
 
             // Low requirements for other resources
-            for (Resource resource : resources) {
-                if (!primaryGroup.contains(resource)) {
-                    int capacity = resource.getAvailableCapacity();
+            for (int r = 0; r < resources.size(); r++) {
+                if (r < groupStart || r >= groupEnd) {
+                    int capacity = resources.get(r).getAvailableCapacity();
                     int maxReq = (int) (capacity * utilizationTarget * 0.2);  // 20% of normal
-                    requirements.put(resource.getName(), random.nextInt(maxReq));
+                    requirements[r] = random.nextInt(maxReq);
                 }
             }
 
-            projects.add(new Project("Project" + i, requirements));
+            projects.add(project(i, requirements));
         }
     }
 
     private void generateCompetitiveProjects(List<Project> projects) {
-        // Select highly contested resources
+        // Highly contested resources: the first third
         int numContested = Math.max(1, resources.size() / 3);  // 33% of resources are contested
-        List<Resource> contestedResources = new ArrayList<>(resources.subList(0, numContested));
 
         for (int i = 0; i < numProjects; i++) {
-            Map<String, Integer> requirements = new HashMap<>();
+            int[] requirements = new int[resources.size()];
 
             // High requirements for contested resources
-            for (Resource resource : contestedResources) {
-                int capacity = resource.getAvailableCapacity();
+            for (int r = 0; r < Math.min(numContested, resources.size()); r++) {
+                int capacity = resources.get(r).getAvailableCapacity();
                 int maxReq = (int) (capacity * utilizationTarget);
-                requirements.put(resource.getName(), maxReq + random.nextInt(maxReq/2));
+                requirements[r] = maxReq + random.nextInt(maxReq/2);
             }
 
             // Normal requirements for other resources
-            for (Resource resource : resources) {
-                if (!contestedResources.contains(resource)) {
-                    int capacity = resource.getAvailableCapacity();
-                    int maxReq = (int) (capacity * utilizationTarget / numProjects);
-                    requirements.put(resource.getName(), random.nextInt(maxReq));
-                }
+            for (int r = numContested; r < resources.size(); r++) {
+                int capacity = resources.get(r).getAvailableCapacity();
+                int maxReq = (int) (capacity * utilizationTarget / numProjects);
+                requirements[r] = random.nextInt(maxReq);
             }
 
-            projects.add(new Project("Project" + i, requirements));
+            projects.add(project(i, requirements));
         }
     }
 
@@ -146,17 +146,16 @@ class ProjectGenerator {
         }
 
         for (int i = 0; i < numProjects; i++) {
-            Map<String, Integer> requirements = new HashMap<>();
+            int[] requirements = new int[resources.size()];
 
             for (int j = 0; j < resources.size(); j++) {
-                Resource resource = resources.get(j);
-                int capacity = resource.getAvailableCapacity();
+                int capacity = resources.get(j).getAvailableCapacity();
                 double seasonalFactor = seasonalPattern[(j + i) % resources.size()];
                 int maxReq = (int) (capacity * utilizationTarget * seasonalFactor);
-                requirements.put(resource.getName(), maxReq + random.nextInt(maxReq/2));
+                requirements[j] = maxReq + random.nextInt(maxReq/2);
             }
 
-            projects.add(new Project("Project" + i, requirements));
+            projects.add(project(i, requirements));
         }
     }
 
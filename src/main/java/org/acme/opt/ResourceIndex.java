@@ -0,0 +1,50 @@
+package org.acme.opt;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interned resource names: id i is names[i]. Sparse requirement rows store ids into an index, so
+// projects generated over the same resources share one index and need no name lookups.
+public final class ResourceIndex {
+    private final String[] names;
+    private final Map<String, Integer> ids;
+
+    private ResourceIndex(String[] names) {
+        this.names = names;
+        this.ids = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (ids.putIfAbsent(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate resource: " + names[i]);
+            }
+        }
+    }
+
+    public static ResourceIndex of(List<Resource> resources) {
+        return new ResourceIndex(resources.stream().map(Resource::getName).toArray(String[]::new));
+    }
+
+    static ResourceIndex ofNames(String... names) {
+        return new ResourceIndex(names);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // -1 for names that are not in the index
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    // Same names in the same order, so ids can be used across both without translation
+    public boolean sameAs(ResourceIndex other) {
+        return this == other || Arrays.equals(names, other.names);
+    }
+}
@@ -0,0 +1,34 @@
+package org.acme.opt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// The MPSolver backends bundled with ortools-java. GLOP is an LP solver: it relaxes integer
+// variables, which is exact only when the relaxation has integral optima. The others branch.
+@AllArgsConstructor
+@Getter
+public enum SolverBackend {
+    GLOP("GLOP", false, false),
+    CBC("CBC", true, false),
+    SCIP("SCIP", true, false),
+    CP_SAT("CP_SAT", true, true);  // Treats continuous variables as integers
+
+    // Integer models past this many variables go to CP-SAT when it gets enough threads for its
+    // portfolio of workers; on a single thread SCIP found better solutions within the same limit
+    static final int SMALL_MIP_VARIABLES = 20_000;
+    static final int CP_SAT_MIN_THREADS = 8;
+
+    private final String solverId;
+    private final boolean mip;
+    // Whether the number of threads is honoured; GLOP fails its solve when given more than one
+    private final boolean multiThreaded;
+
+    // integral: whether the model needs integer solutions that its LP relaxation does not give.
+    // CBC is never selected: it overran the time limit in the benchmark.
+    public static SolverBackend select(int variables, boolean integral, int threads) {
+        if (!integral) {
+            return GLOP;
+        }
+        return variables > SMALL_MIP_VARIABLES && threads >= CP_SAT_MIN_THREADS ? CP_SAT : SCIP;
+    }
+}
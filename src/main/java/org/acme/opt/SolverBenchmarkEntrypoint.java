@@ -0,0 +1,136 @@
+package org.acme.opt;
+
+import com.google.ortools.linearsolver.MPConstraint;
+import com.google.ortools.linearsolver.MPSolver;
+import com.google.ortools.linearsolver.MPVariable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Latency vs. solution quality of each backend on the ProjectGenerator profiles, for two models:
+// MaximizeResourceUsage, whose LP relaxation is exact, and project selection (the most projects
+// whose requirements fit the capacities all together), which needs branching.
+// Arguments: resources, projects, time limit in seconds.
+public class SolverBenchmarkEntrypoint {
+    public static void main(String[] args) {
+        int numResources = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int numProjects = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        Duration timeLimit = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+
+        List<Resource> resources = new ResourceGenerator.Builder()
+                .numResources(numResources)
+                .minCapacity(70)
+                .distribution(ResourceGenerator.CapacityDistribution.NORMAL)
+                .build()
+                .generate();
+
+        // Native libraries and first solver creations out of the measurements
+        run(timeLimit, settings -> usage(resources.subList(0, 1), List.of(), settings));
+
+        System.out.printf("%d resources, %d projects, time limit %s%n", numResources, numProjects, timeLimit);
+        System.out.printf("%-14s %-10s %-10s %-10s %10s %14s %8s%n",
+                "Profile", "Model", "Backend", "Status", "Time (ms)", "Objective", "Quality");
+        for (ProjectGenerator.RequirementProfile profile : ProjectGenerator.RequirementProfile.values()) {
+            List<Project> projects;
+            try {
+                projects = new ProjectGenerator.Builder()
+                        .numProjects(numProjects)
+                        .resources(resources)
+                        .profile(profile)
+                        .utilizationTarget(utilizationTarget(profile, numProjects))
+                        .build()
+                        .generate();
+            } catch (IllegalArgumentException e) {
+                System.out.printf("%-14s generator failed: %s%n", profile, e.getMessage());
+                continue;
+            }
+            IndexedProblem problem = IndexedProblem.of(resources, projects);
+            report(profile, "usage", run(timeLimit, settings -> usage(resources, projects, settings)));
+            report(profile, "selection", run(timeLimit, settings -> selection(problem, settings)));
+        }
+    }
+
+    // The profiles read the target differently; these ask for about three times the capacities,
+    // so that selection has to choose. SEASONAL requirements cannot be generated at these sizes.
+    private static double utilizationTarget(ProjectGenerator.RequirementProfile profile, int numProjects) {
+        return switch (profile) {
+            case BALANCED, COMPETITIVE, SEASONAL -> 0.03 * numProjects;
+            case SPARSE -> 12.0 / numProjects;
+            case COMPLEMENTARY -> 0.3;
+        };
+    }
+
+    private record Run(String backend, String status, long millis, double objective) {
+    }
+
+    private interface Model {
+        Run solve(SolverSettings settings);
+    }
+
+    // Every backend, then the automatic selection
+    private static List<Run> run(Duration timeLimit, Model model) {
+        List<Run> runs = new ArrayList<>();
+        for (SolverBackend backend : SolverBackend.values()) {
+            runs.add(model.solve(new SolverSettings.Builder().backend(backend).timeLimit(timeLimit).build()));
+        }
+        runs.add(model.solve(new SolverSettings.Builder().timeLimit(timeLimit).build()));
+        return runs;
+    }
+
+    private static Run usage(List<Resource> resources, List<Project> projects, SolverSettings settings) {
+        long start = System.nanoTime();
+        AllocationResult result = new MaximizeResourceUsage(resources, projects, settings).allocate();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        int variables = result.getProblem().nonZeroCount();
+        return new Run(label(settings, variables, false), result.isSolved() ? "SOLVED" : "NOT_SOLVED",
+                millis, result.totalUsed());
+    }
+
+    // y[p] = 1 when project p gets all it requires; the objective counts the selected projects
+    private static Run selection(IndexedProblem problem, SolverSettings settings) {
+        long start = System.nanoTime();
+        MPSolver solver = settings.createSolver(problem.projectCount(), true);
+        MPConstraint[] capacityRows = new MPConstraint[problem.resourceCount()];
+        for (int r = 0; r < problem.resourceCount(); r++) {
+            capacityRows[r] = solver.makeConstraint(0, problem.capacity(r), "capacity_" + r);
+        }
+        MPVariable[] y = new MPVariable[problem.projectCount()];
+        for (int p = 0; p < problem.projectCount(); p++) {
+            y[p] = solver.makeIntVar(0, 1, "y_" + p);
+            solver.objective().setCoefficient(y[p], 1);
+            for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+                capacityRows[problem.resourceOf(i)].setCoefficient(y[p], problem.amount(i));
+            }
+        }
+        solver.objective().setMaximization();
+        MPSolver.ResultStatus status = solver.solve();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        // A relaxed y may be fractional: only the fully selected projects count
+        int selected = 0;
+        if (status == MPSolver.ResultStatus.OPTIMAL || status == MPSolver.ResultStatus.FEASIBLE) {
+            for (MPVariable variable : y) {
+                if (variable.solutionValue() > 1 - 1e-6) {
+                    selected++;
+                }
+            }
+        }
+        solver.delete();
+        return new Run(label(settings, problem.projectCount(), true), status.name(), millis, selected);
+    }
+
+    private static String label(SolverSettings settings, int variables, boolean integral) {
+        SolverBackend backend = settings.backendFor(variables, integral);
+        return settings.getBackend() == null ? "AUTO:" + backend : backend.name();
+    }
+
+    // Quality is the objective relative to the best run on the same model
+    private static void report(ProjectGenerator.RequirementProfile profile, String model, List<Run> runs) {
+        double best = runs.stream().mapToDouble(Run::objective).max().orElse(0);
+        for (Run run : runs) {
+            System.out.printf("%-14s %-10s %-10s %-10s %10d %14.0f %7.1f%%%n",
+                    profile, model, run.backend(), run.status(), run.millis(), run.objective(),
+                    best > 0 ? run.objective() / best * 100 : 100.0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.acme.opt;
+
+import com.google.ortools.Loader;
+import com.google.ortools.linearsolver.MPSolver;
+import lombok.Getter;
+
+import java.time.Duration;
+
+// Backend, threads and time limit for the opt models. Without a backend one is selected per model
+// from its size and integrality. With a time limit a solve may end FEASIBLE instead of OPTIMAL.
+@Getter
+public final class SolverSettings {
+    private static final SolverSettings DEFAULTS = new Builder().build();
+
+    private final SolverBackend backend;
+    private final int threads;
+    private final Duration timeLimit;
+
+    private SolverSettings(Builder builder) {
+        this.backend = builder.backend;
+        this.threads = builder.threads;
+        this.timeLimit = builder.timeLimit;
+    }
+
+    public static SolverSettings defaults() {
+        return DEFAULTS;
+    }
+
+    public SolverBackend backendFor(int variables, boolean integral) {
+        return backend != null ? backend : SolverBackend.select(variables, integral, threads);
+    }
+
+    public MPSolver createSolver(int variables, boolean integral) {
+        return createSolver(backendFor(variables, integral));
+    }
+
+    MPSolver createSolver(SolverBackend selected) {
+        Loader.loadNativeLibraries();
+        MPSolver solver = MPSolver.createSolver(selected.getSolverId());
+        if (solver == null) {
+            throw new RuntimeException("Could not create solver " + selected);
+        }
+        if (selected.isMultiThreaded()) {
+            solver.setNumThreads(threads);
+        }
+        if (timeLimit != null) {
+            solver.setTimeLimit(timeLimit.toMillis());
+        }
+        return solver;
+    }
+
+    public static class Builder {
+        private SolverBackend backend;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Duration timeLimit;
+
+        // Fixed backend; left unset it is selected per model
+        public Builder backend(SolverBackend val) {
+            backend = val;
+            return this;
+        }
+
+        // Only used by backends that solve in parallel
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        public Builder timeLimit(Duration val) {
+            timeLimit = val;
+            return this;
+        }
+
+        public SolverSettings build() {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be positive: " + threads);
+            }
+            return new SolverSettings(this);
+        }
+    }
+}
@@ -7,6 +7,13 @@ public interface Handler<I, O> {
 //    void setContext(BaseTransactionContext context);
 
     O process(I input);
+
+    // Called by PipelineDefinition with the context of the current execution. Handlers that keep
+    // per-execution state (rollbacks, forks) override it instead of relying on setContext.
+    default O process(I input, BaseTransactionContext context) {
+        return process(input);
+    }
+
     default void setContext(BaseTransactionContext context) {
         // Default no-op: handlers override this if they need the context.
     };
@@ -1,7 +1,30 @@
 package org.acme.pattern;
 
 import io.smallrye.mutiny.Uni;
+import org.acme.pattern.context.BaseTransactionContext;
+
+import java.util.function.BiFunction;
 
 public interface MutinyHandler<I, O> {
     Uni<O> process(I input);
+
+    // Called by MutinyPipeline with the context of the current execution
+    default Uni<O> process(I input, BaseTransactionContext context) {
+        return process(input);
+    }
+
+    // Handler that needs the execution context. Used outside of a pipeline it gets a throwaway one.
+    static <I, O> MutinyHandler<I, O> withContext(BiFunction<I, BaseTransactionContext, Uni<O>> body) {
+        return new MutinyHandler<>() {
+            @Override
+            public Uni<O> process(I input) {
+                return body.apply(input, new BaseTransactionContext());
+            }
+
+            @Override
+            public Uni<O> process(I input, BaseTransactionContext context) {
+                return body.apply(input, context);
+            }
+        };
+    }
 }
@@ -0,0 +1,20 @@
+package org.acme.pattern.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Snapshot of a StageCache's counters
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,6 @@
+package org.acme.pattern.cache;
+
+public enum EvictionPolicy {
+    LRU,    // Evicts the entry read longest ago
+    LFU     // Evicts the entry read least often, the oldest one among ties
+}
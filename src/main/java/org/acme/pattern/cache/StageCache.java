@@ -0,0 +1,273 @@
+package org.acme.pattern.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Bounded memoizing cache for pure stages. Entries hold the future of the value, so a miss
+// inserts the future before loading and concurrent misses for the same key wait on that one load
+// (single flight). Failed or cancelled loads are not cached. The bookkeeping is guarded by one
+// lock; loads always run outside of it.
+public class StageCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, Entry<V>> entries = new HashMap<>();
+    private final Order<K> order;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private StageCache(Builder builder) {
+        this.maxSize = builder.maxSize;
+        this.ttlNanos = builder.ttl == null ? 0 : builder.ttl.toNanos();
+        this.order = builder.policy == EvictionPolicy.LFU ? new LfuOrder<>() : new LruOrder<>();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        // Set once the value is loaded, 0 while loading or without TTL
+        volatile long expiresAtNanos;
+    }
+
+    private record Lookup<V>(Entry<V> entry, boolean load) {
+    }
+
+    // Loads on the calling thread on a miss; exceptions from the loader are rethrown as is
+    public V get(K key, Function<K, V> loader) {
+        Lookup<V> lookup = lookup(key);
+        if (lookup.load()) {
+            try {
+                loaded(key, lookup.entry(), loader.apply(key), null);
+            } catch (RuntimeException | Error e) {
+                loaded(key, lookup.entry(), null, e);
+                throw e;
+            }
+        }
+        try {
+            return lookup.entry().future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Every caller gets its own copy of the entry's future: cancelling it or timing it out does not
+    // complete the entry the other callers wait on
+    public CompletableFuture<V> getAsync(K key, Function<K, CompletableFuture<V>> loader) {
+        Lookup<V> lookup = lookup(key);
+        if (lookup.load()) {
+            CompletableFuture<V> load;
+            try {
+                load = loader.apply(key);
+            } catch (RuntimeException e) {
+                load = CompletableFuture.failedFuture(e);
+            }
+            load.whenComplete((value, error) -> loaded(key, lookup.entry(), value, error));
+        }
+        return lookup.entry().future.copy();
+    }
+
+    private Lookup<V> lookup(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                long expiresAt = entry.expiresAtNanos;
+                if (expiresAt == 0 || System.nanoTime() - expiresAt < 0) {
+                    order.touch(key);
+                    hits.increment();
+                    return new Lookup<>(entry, false);
+                }
+                remove(key);
+                expirations.increment();
+            }
+            misses.increment();
+            // Evict before inserting, LFU would otherwise pick the new key with its count of 1
+            while (entries.size() >= maxSize) {
+                remove(order.victim());
+                evictions.increment();
+            }
+            Entry<V> created = new Entry<>();
+            entries.put(key, created);
+            order.add(key);
+            return new Lookup<>(created, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loaded(K key, Entry<V> entry, V value, Throwable error) {
+        if (error == null) {
+            if (ttlNanos > 0) {
+                entry.expiresAtNanos = System.nanoTime() + ttlNanos;
+            }
+            entry.future.complete(value);
+            return;
+        }
+        lock.lock();
+        try {
+            if (entries.get(key) == entry) {
+                remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        entry.future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+    }
+
+    private void remove(K key) {
+        entries.remove(key);
+        order.remove(key);
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (K key : entries.keySet()) {
+                order.remove(key);
+            }
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+    }
+
+    // Eviction order of the keys, only used under the lock
+    private interface Order<K> {
+        void add(K key);
+
+        void touch(K key);
+
+        void remove(K key);
+
+        K victim();
+    }
+
+    private static final class LruOrder<K> implements Order<K> {
+        private final LinkedHashSet<K> keys = new LinkedHashSet<>();
+
+        public void add(K key) {
+            keys.add(key);
+        }
+
+        public void touch(K key) {
+            keys.remove(key);
+            keys.add(key);
+        }
+
+        public void remove(K key) {
+            keys.remove(key);
+        }
+
+        public K victim() {
+            return keys.iterator().next();
+        }
+    }
+
+    // Constant-time LFU: keys grouped by read count, each group in insertion order
+    private static final class LfuOrder<K> implements Order<K> {
+        private final Map<K, Integer> counts = new HashMap<>();
+        private final Map<Integer, LinkedHashSet<K>> groups = new HashMap<>();
+        private int minCount;
+
+        public void add(K key) {
+            counts.put(key, 1);
+            groups.computeIfAbsent(1, count -> new LinkedHashSet<>()).add(key);
+            minCount = 1;
+        }
+
+        public void touch(K key) {
+            int count = counts.get(key);
+            counts.put(key, count + 1);
+            leave(key, count);
+            if (minCount == count && !groups.containsKey(count)) {
+                minCount = count + 1;
+            }
+            groups.computeIfAbsent(count + 1, next -> new LinkedHashSet<>()).add(key);
+        }
+
+        public void remove(K key) {
+            Integer count = counts.remove(key);
+            if (count != null) {
+                leave(key, count);
+            }
+        }
+
+        public K victim() {
+            LinkedHashSet<K> group = groups.get(minCount);
+            if (group == null) {
+                // minCount went stale after a removal: find the lowest group left
+                minCount = groups.keySet().stream().min(Integer::compare).orElseThrow();
+                group = groups.get(minCount);
+            }
+            Iterator<K> oldest = group.iterator();
+            return oldest.next();
+        }
+
+        private void leave(K key, int count) {
+            LinkedHashSet<K> group = groups.get(count);
+            group.remove(key);
+            if (group.isEmpty()) {
+                groups.remove(count);
+            }
+        }
+    }
+
+    public static class Builder {
+        private int maxSize = 1_000;
+        private EvictionPolicy policy = EvictionPolicy.LRU;
+        private Duration ttl;
+
+        public Builder maxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder policy(EvictionPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        // Entries expire this long after they were loaded; no TTL by default
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public <K, V> StageCache<K, V> build() {
+            return new StageCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.acme.pattern.checkpoint;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Output of the last stage an execution completed
+@Getter
+@AllArgsConstructor
+public class Checkpoint {
+    private final String executionId;
+    private final int stage;
+    private final Object result;
+}
@@ -0,0 +1,276 @@
+package org.acme.pattern.checkpoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only journal of stage outputs in a memory-mapped file. Writes go to the page cache, so a
+// checkpoint survives a crash of the process (not of the machine unless sync is on).
+//
+// Record layout: int bodyLength | body | int crc32(body), body = int stage | short idLength | id | payload.
+// A zero length ends the journal; it is written past every record before the record's own length,
+// so a torn append is never read back.
+public class CheckpointJournal implements AutoCloseable {
+    private static final int MAGIC = 0x434B5054; // "CKPT"
+    private static final int START = Integer.BYTES;
+
+    private final Path path;
+    private final CheckpointSerializer serializer;
+    private final boolean sync;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Latest record of every execution that has not completed yet
+    private final Map<String, Entry> latest = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long liveBytes;
+
+    private record Entry(int stage, int recordOffset, int recordSize, int payloadOffset, int payloadLength) {
+    }
+
+    public CheckpointJournal(Path path, int initialCapacity, CheckpointSerializer serializer, boolean sync) {
+        this.path = path;
+        this.serializer = serializer;
+        this.sync = sync;
+        try {
+            boolean existing = Files.exists(path) && Files.size(path) > START;
+            map(existing ? Math.max(initialCapacity, (int) Files.size(path)) : initialCapacity);
+            if (existing && buffer.getInt(0) == MAGIC) {
+                recover();
+            } else {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(START, 0);
+                position = START;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public CheckpointJournal(Path path) {
+        this(path, 1 << 20, CheckpointSerializer.JAVA, false);
+    }
+
+    private void map(int capacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    // Rebuilds the index from the file, stopping at the terminator or at the first damaged record
+    private void recover() {
+        int offset = START;
+        while (offset + Integer.BYTES <= buffer.capacity()) {
+            int bodyLength = buffer.getInt(offset);
+            int size = Integer.BYTES + bodyLength + Integer.BYTES;
+            if (bodyLength <= 0 || offset + size > buffer.capacity()) {
+                break;
+            }
+            int body = offset + Integer.BYTES;
+            if (crc(body, bodyLength) != buffer.getInt(body + bodyLength)) {
+                break;
+            }
+            int stage = buffer.getInt(body);
+            int idLength = buffer.getShort(body + Integer.BYTES);
+            byte[] id = new byte[idLength];
+            buffer.get(body + Integer.BYTES + Short.BYTES, id);
+            int payloadOffset = body + Integer.BYTES + Short.BYTES + idLength;
+            String executionId = new String(id, StandardCharsets.UTF_8);
+            if (stage < 0) {
+                drop(executionId);
+            } else {
+                index(executionId, new Entry(stage, offset, size, payloadOffset, body + bodyLength - payloadOffset));
+            }
+            offset += size;
+        }
+        position = offset;
+    }
+
+    public void record(String executionId, int stage, Object result) {
+        byte[] payload = serializer.serialize(result);
+        lock.lock();
+        try {
+            append(executionId, stage, payload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Checkpoint latest(String executionId) {
+        lock.lock();
+        try {
+            Entry entry = latest.get(executionId);
+            if (entry == null) {
+                return null;
+            }
+            byte[] payload = new byte[entry.payloadLength()];
+            buffer.get(entry.payloadOffset(), payload);
+            return new Checkpoint(executionId, entry.stage(), serializer.deserialize(payload));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The execution needs no more resuming: its records become garbage and are compacted away
+    public void complete(String executionId) {
+        lock.lock();
+        try {
+            if (!latest.containsKey(executionId)) {
+                return;
+            }
+            // Tombstone, so the execution stays completed if the journal is reopened before compaction
+            append(executionId, -1, new byte[0]);
+            drop(executionId);
+            if (latest.isEmpty()) {
+                // Nothing left to resume: start over at the beginning of the file
+                buffer.putInt(START, 0);
+                position = START;
+            } else if (position - START > 2 * liveBytes) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String executionId, int stage, byte[] payload) {
+        byte[] id = executionId.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = Integer.BYTES + Short.BYTES + id.length + payload.length;
+        int size = Integer.BYTES + bodyLength + Integer.BYTES;
+        if (position + size + Integer.BYTES > buffer.capacity()) {
+            compact();
+            if (position + size + Integer.BYTES > buffer.capacity()) {
+                grow(position + size + Integer.BYTES);
+            }
+        }
+        int offset = position;
+        int body = offset + Integer.BYTES;
+        buffer.putInt(body, stage);
+        buffer.putShort(body + Integer.BYTES, (short) id.length);
+        buffer.put(body + Integer.BYTES + Short.BYTES, id);
+        int payloadOffset = body + Integer.BYTES + Short.BYTES + id.length;
+        buffer.put(payloadOffset, payload);
+        buffer.putInt(body + bodyLength, crc(body, bodyLength));
+        buffer.putInt(offset + size, 0);
+        // Publishing the length last makes the record visible to recover()
+        buffer.putInt(offset, bodyLength);
+        if (sync) {
+            buffer.force(offset, size + Integer.BYTES);
+        }
+        position = offset + size;
+        if (stage >= 0) {
+            index(executionId, new Entry(stage, offset, size, payloadOffset, payload.length));
+        }
+    }
+
+    private void index(String executionId, Entry entry) {
+        Entry previous = latest.put(executionId, entry);
+        liveBytes += entry.recordSize() - (previous == null ? 0 : previous.recordSize());
+    }
+
+    private void drop(String executionId) {
+        Entry previous = latest.remove(executionId);
+        if (previous != null) {
+            liveBytes -= previous.recordSize();
+        }
+    }
+
+    // Rewrites only the latest record of every live execution into a new file and swaps it in
+    public void compact() {
+        lock.lock();
+        try {
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            int capacity = buffer.capacity();
+            try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                out.putInt(0, MAGIC);
+                int offset = START;
+                Map<String, Entry> moved = new HashMap<>();
+                for (Map.Entry<String, Entry> live : latest.entrySet()) {
+                    Entry entry = live.getValue();
+                    byte[] record = new byte[entry.recordSize()];
+                    buffer.get(entry.recordOffset(), record);
+                    out.put(offset, record);
+                    moved.put(live.getKey(), new Entry(entry.stage(), offset, entry.recordSize(),
+                            offset + entry.payloadOffset() - entry.recordOffset(), entry.payloadLength()));
+                    offset += entry.recordSize();
+                }
+                out.putInt(offset, 0);
+                out.force();
+                latest.clear();
+                latest.putAll(moved);
+                position = offset;
+            }
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grow(int required) {
+        int capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        try {
+            buffer.force();
+            channel.close();
+            map(capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int crc(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    public int pendingExecutions() {
+        lock.lock();
+        try {
+            return latest.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bytes in use, records of completed executions included until they are compacted
+    public int usedBytes() {
+        lock.lock();
+        try {
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
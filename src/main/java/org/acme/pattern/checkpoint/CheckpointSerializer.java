@@ -0,0 +1,40 @@
+package org.acme.pattern.checkpoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+// Turns intermediate results into journal payloads and back
+public interface CheckpointSerializer {
+    byte[] serialize(Object value);
+
+    Object deserialize(byte[] bytes);
+
+    // Plain Java serialization, the intermediate results have to be Serializable
+    CheckpointSerializer JAVA = new CheckpointSerializer() {
+        @Override
+        public byte[] serialize(Object value) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return in.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Checkpoint refers to an unknown class", e);
+            }
+        }
+    };
+}
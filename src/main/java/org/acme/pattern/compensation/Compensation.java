@@ -0,0 +1,51 @@
+package org.acme.pattern.compensation;
+
+import lombok.Getter;
+import org.acme.pattern.RollbackCallback;
+
+import java.util.Set;
+
+// A rollback callback plus its ordering constraint. With no declared dependencies a compensation
+// runs after every compensation registered later than itself, i.e. in reverse registration order.
+@Getter
+public class Compensation {
+    private final String name;
+    private final RollbackCallback callback;
+    // Names of the compensations that must finish first, null for the default reverse ordering
+    private final Set<String> runAfter;
+    // Set for compensations that can be written to the CompensationLog, null for plain callbacks
+    private final CompensationDescriptor descriptor;
+
+    private Compensation(String name, RollbackCallback callback, Set<String> runAfter, CompensationDescriptor descriptor) {
+        this.name = name;
+        this.callback = callback;
+        this.runAfter = runAfter;
+        this.descriptor = descriptor;
+    }
+
+    public static Compensation of(String name, RollbackCallback callback) {
+        return new Compensation(name, callback, null, null);
+    }
+
+    // Can run in parallel with every other compensation
+    public static Compensation independent(String name, RollbackCallback callback) {
+        return new Compensation(name, callback, Set.of(), null);
+    }
+
+    public static Compensation after(String name, RollbackCallback callback, String... runAfter) {
+        return new Compensation(name, callback, Set.of(runAfter), null);
+    }
+
+    // Default ordering, survives a restart through the CompensationLog
+    public static Compensation durable(String name, CompensationDescriptor descriptor, RollbackCallback callback) {
+        return new Compensation(name, callback, null, descriptor);
+    }
+
+    public boolean isDurable() {
+        return descriptor != null;
+    }
+
+    public boolean hasDefaultOrdering() {
+        return runAfter == null;
+    }
+}
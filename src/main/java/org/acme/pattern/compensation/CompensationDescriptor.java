@@ -0,0 +1,9 @@
+package org.acme.pattern.compensation;
+
+import java.io.Serializable;
+
+// Serializable description of a compensation: what to undo (type) and for which entity (argument).
+// Unlike a lambda it can be written to the CompensationLog and turned back into a callback after
+// a restart through a CompensationRegistry.
+public record CompensationDescriptor(String type, String argument) implements Serializable {
+}
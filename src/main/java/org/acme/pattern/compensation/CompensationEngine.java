@@ -0,0 +1,255 @@
+package org.acme.pattern.compensation;
+
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.context.ContextKey;
+import org.acme.pattern.events.StepEvent;
+import org.acme.pattern.events.StepEventSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Runs the compensations registered in a context as a dependency graph: each one starts as soon as
+// the compensations it depends on are done, so independent rollbacks run in parallel. A timeout
+// only ends the wait for the report: the callback cannot be stopped, and its dependents are held
+// back until it really returns or the overall deadline passes.
+public class CompensationEngine {
+    // The report of the last rollback run against a context
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static final ContextKey<CompletableFuture<CompensationReport>> REPORT =
+            (ContextKey) ContextKey.of("compensation.report", CompletableFuture.class);
+
+    private static final Executor VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+    private static final CompensationEngine DEFAULT = builder().build();
+
+    private final Executor executor;
+    private final long callbackTimeoutNanos;
+    private final long deadlineNanos;
+    private final boolean async;
+
+    private CompensationEngine(Builder builder) {
+        this.executor = builder.executor;
+        this.callbackTimeoutNanos = builder.callbackTimeout.toNanos();
+        this.deadlineNanos = builder.deadline.toNanos();
+        this.async = builder.async;
+    }
+
+    public static CompensationEngine defaults() {
+        return DEFAULT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Blocks until every compensation has an outcome, unless the engine is asynchronous: then the
+    // failing caller returns right away and the report is left in the context under REPORT.
+    public CompletableFuture<CompensationReport> compensate(BaseTransactionContext context) {
+        CompletableFuture<CompensationReport> report = compensate(context.getCompensations(), context.getStepEventSink());
+        context.put(REPORT, report);
+        if (!async) {
+            report.join();
+        }
+        return report;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // Never completes exceptionally: failures and timeouts are recorded in the report
+    public CompletableFuture<CompensationReport> compensate(List<Compensation> compensations, StepEventSink events) {
+        List<Compensation> snapshot = List.copyOf(compensations);
+        int count = snapshot.size();
+        if (count == 0) {
+            return CompletableFuture.completedFuture(new CompensationReport(List.of()));
+        }
+        long deadline = System.nanoTime() + deadlineNanos;
+        int[][] dependencies = dependencies(snapshot);
+        AtomicReferenceArray<CompensationReport.Outcome> outcomes = new AtomicReferenceArray<>(count);
+        // Start time of each callback, 0 until it starts
+        AtomicLongArray started = new AtomicLongArray(count);
+        CompletableFuture<?>[] done = new CompletableFuture[count];
+
+        for (int i : startOrder(dependencies)) {
+            // Inside a cycle some dependencies have not been scheduled yet, those are ignored
+            CompletableFuture<?>[] before = Arrays.stream(dependencies[i])
+                    .filter(dependency -> done[dependency] != null)
+                    .mapToObj(dependency -> done[dependency])
+                    .toArray(CompletableFuture[]::new);
+            int index = i;
+            done[i] = CompletableFuture.allOf(before)
+                    .thenCompose(ignored -> run(snapshot.get(index), index, outcomes, started, deadline, events));
+        }
+
+        return CompletableFuture.allOf(done)
+                .completeOnTimeout(null, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                .thenApply(ignored -> {
+                    long now = System.nanoTime();
+                    List<CompensationReport.Outcome> report = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        CompensationReport.Outcome outcome = outcomes.get(i);
+                        long start = started.get(i);
+                        String name = snapshot.get(i).getName();
+                        if (outcome == null && start != 0) {
+                            // Still running at the deadline
+                            outcome = new CompensationReport.Outcome(name, CompensationReport.Status.TIMED_OUT,
+                                    new TimeoutException("Running past the compensation deadline"), now - start);
+                        } else if (outcome == null) {
+                            outcome = new CompensationReport.Outcome(name, CompensationReport.Status.SKIPPED, null, 0);
+                        }
+                        report.add(outcome);
+                    }
+                    return new CompensationReport(report);
+                });
+    }
+
+    // Completes when the callback returns, which may be after its outcome was recorded as TIMED_OUT
+    private CompletableFuture<Void> run(Compensation compensation, int index,
+                                        AtomicReferenceArray<CompensationReport.Outcome> outcomes,
+                                        AtomicLongArray started, long deadline, StepEventSink events) {
+        long start = System.nanoTime();
+        long remaining = deadline - start;
+        if (remaining <= 0) {
+            outcomes.set(index, new CompensationReport.Outcome(compensation.getName(), CompensationReport.Status.SKIPPED, null, 0));
+            return CompletableFuture.completedFuture(null);
+        }
+        started.set(index, start);
+        CompletableFuture<Void> callback = CompletableFuture.runAsync(() -> compensation.getCallback().rollback(), executor);
+        // The timeout applies to a copy: it records the outcome without completing the callback's future
+        CompletableFuture<Void> recorded = callback.copy()
+                .orTimeout(Math.min(callbackTimeoutNanos, remaining), TimeUnit.NANOSECONDS)
+                .handle((ignored, error) -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    CompensationReport.Status status = cause == null ? CompensationReport.Status.SUCCEEDED
+                            : cause instanceof TimeoutException ? CompensationReport.Status.TIMED_OUT
+                            : CompensationReport.Status.FAILED;
+                    outcomes.set(index, new CompensationReport.Outcome(compensation.getName(), status, cause, System.nanoTime() - start));
+                    if (cause != null && events.isEnabled()) {
+                        events.publish(StepEvent.of(StepEvent.Type.ROLLBACK_FAILED, compensation.getName(),
+                                "Rollback callback " + status.name().toLowerCase(), cause));
+                    }
+                    return null;
+                });
+        return CompletableFuture.allOf(recorded, callback).handle((ignored, error) -> null);
+    }
+
+    // dependencies[i] holds the indexes that must finish before compensation i starts. A default
+    // ordered compensation waits for the next default ordered one and the explicitly ordered ones
+    // registered in between: the chain keeps the reverse order with a linear number of edges.
+    static int[][] dependencies(List<Compensation> compensations) {
+        int count = compensations.size();
+        Map<String, List<Integer>> byName = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            byName.computeIfAbsent(compensations.get(i).getName(), name -> new ArrayList<>()).add(i);
+        }
+        int[][] dependencies = new int[count][];
+        int nextDefault = count;
+        for (int i = count - 1; i >= 0; i--) {
+            Compensation compensation = compensations.get(i);
+            if (compensation.hasDefaultOrdering()) {
+                int end = Math.min(nextDefault, count - 1);
+                dependencies[i] = new int[end - i];
+                for (int j = i + 1; j <= end; j++) {
+                    dependencies[i][j - i - 1] = j;
+                }
+                nextDefault = i;
+            } else {
+                int index = i;
+                dependencies[i] = compensation.getRunAfter().stream()
+                        .flatMap(name -> byName.getOrDefault(name, List.of()).stream())
+                        .filter(j -> j != index)
+                        .mapToInt(Integer::intValue)
+                        .sorted()
+                        .toArray();
+            }
+        }
+        return dependencies;
+    }
+
+    // Topological order; compensations left over by a cycle go last, in reverse registration order
+    static int[] startOrder(int[][] dependencies) {
+        int count = dependencies.length;
+        int[] pending = new int[count];
+        List<List<Integer>> dependents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            pending[i] = dependencies[i].length;
+            for (int dependency : dependencies[i]) {
+                dependents.get(dependency).add(i);
+            }
+        }
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = count - 1; i >= 0; i--) {
+            if (pending[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int[] order = new int[count];
+        boolean[] scheduled = new boolean[count];
+        int next = 0;
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            order[next++] = i;
+            scheduled[i] = true;
+            for (int dependent : dependents.get(i)) {
+                if (--pending[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        for (int i = count - 1; i >= 0 && next < count; i--) {
+            if (!scheduled[i]) {
+                order[next++] = i;
+            }
+        }
+        return order;
+    }
+
+    public static class Builder {
+        private Executor executor = VIRTUAL_THREADS;
+        private Duration callbackTimeout = Duration.ofSeconds(30);
+        private Duration deadline = Duration.ofSeconds(60);
+        private boolean async;
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder callbackTimeout(Duration callbackTimeout) {
+            this.callbackTimeout = callbackTimeout;
+            return this;
+        }
+
+        public Builder deadline(Duration deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        // The failing caller does not wait for the compensations to finish
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        public CompensationEngine build() {
+            return new CompensationEngine(this);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.acme.pattern.compensation;
+
+import org.acme.pattern.events.StepEventSink;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Write-ahead log of compensation intents. An execution logs the descriptor of each durable
+// compensation as its stage registers it and a COMMITTED or COMPENSATED marker when it ends; after
+// a crash, recover() compensates every execution that has intents but no marker.
+//
+// Appends are group committed: callers hand their record to one flusher thread, which writes
+// everything queued so far with a single fsync and wakes all of them. Concurrent executions share
+// the sync instead of paying one each.
+//
+// Once the file passes the compaction threshold and the intents of open executions are less than
+// half of it, the flusher rewrites it with only those intents and swaps it in atomically.
+public class CompensationLog implements AutoCloseable {
+    private static final byte INTENT = 1;
+    private static final byte COMMITTED = 2;
+    private static final byte COMPENSATED = 3;
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    private final Path path;
+    private FileChannel channel;
+    private final long commitWindowNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    private final Thread flusher;
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    // Intents of the executions that have no marker yet, in registration order, as read at startup
+    private final Map<String, List<CompensationDescriptor>> outstanding;
+    // Encoded intents of every execution without a marker, appended or read at startup: what a
+    // compacted file keeps. Guarded by the lock.
+    private final Map<String, ByteArrayOutputStream> live = new LinkedHashMap<>();
+    private long liveBytes;
+    private final long compactionThreshold;
+    // Bytes written to the current file. Guarded by the lock.
+    private long fileSize;
+    private final LongAdder compactions = new LongAdder();
+
+    public CompensationLog(Path path, Duration commitWindow, long compactionThreshold) {
+        this.path = path;
+        this.commitWindowNanos = commitWindow.toNanos();
+        this.compactionThreshold = compactionThreshold;
+        try {
+            this.channel = open(path);
+            this.outstanding = read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        outstanding.forEach((executionId, descriptors) -> {
+            for (CompensationDescriptor descriptor : descriptors) {
+                ByteArrayOutputStream intents = live.computeIfAbsent(executionId, id -> new ByteArrayOutputStream());
+                int before = intents.size();
+                encode(intents, INTENT, executionId, descriptor);
+                liveBytes += intents.size() - before;
+            }
+        });
+        this.flusher = Thread.ofPlatform().daemon().name("compensation-log-flusher").start(this::flushLoop);
+    }
+
+    public CompensationLog(Path path, Duration commitWindow) {
+        this(path, commitWindow, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public CompensationLog(Path path) {
+        this(path, Duration.ZERO);
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Waits until the intents are on disk: the stages must not run before that
+    public void intents(String executionId, List<CompensationDescriptor> descriptors) {
+        if (descriptors.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (CompensationDescriptor descriptor : descriptors) {
+            encode(records, INTENT, executionId, descriptor);
+        }
+        append(executionId, INTENT, records.toByteArray(), true);
+    }
+
+    // Waits as well: a lost marker would make recovery undo a committed execution
+    public void committed(String executionId) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        encode(record, COMMITTED, executionId, null);
+        append(executionId, COMMITTED, record.toByteArray(), true);
+    }
+
+    // Does not wait: compensations must be idempotent anyway, losing this only means they run again
+    public void compensated(String executionId) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        encode(record, COMPENSATED, executionId, null);
+        append(executionId, COMPENSATED, record.toByteArray(), false);
+    }
+
+    // Executions found in the log at startup without a marker, with their descriptors
+    public Map<String, List<CompensationDescriptor>> outstanding() {
+        return Map.copyOf(outstanding);
+    }
+
+    // Runs the outstanding compensations of a previous run, each execution in reverse registration
+    // order, and marks them compensated. Meant to be called once at startup.
+    public Map<String, CompensationReport> recover(CompensationRegistry registry, CompensationEngine engine) {
+        Map<String, CompensationReport> reports = new LinkedHashMap<>();
+        for (Map.Entry<String, List<CompensationDescriptor>> execution : outstanding.entrySet()) {
+            List<Compensation> compensations = execution.getValue().stream().map(registry::compensation).toList();
+            CompensationReport report = engine.compensate(compensations, StepEventSink.NOOP).join();
+            reports.put(execution.getKey(), report);
+            if (report.isComplete()) {
+                ByteArrayOutputStream record = new ByteArrayOutputStream();
+                encode(record, COMPENSATED, execution.getKey(), null);
+                append(execution.getKey(), COMPENSATED, record.toByteArray(), true);
+            }
+        }
+        reports.forEach((executionId, report) -> {
+            if (report.isComplete()) {
+                outstanding.remove(executionId);
+            }
+        });
+        if (outstanding.isEmpty()) {
+            truncate();
+        }
+        return reports;
+    }
+
+    private void append(String executionId, byte type, byte[] bytes, boolean await) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Compensation log is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            if (type == INTENT) {
+                live.computeIfAbsent(executionId, id -> new ByteArrayOutputStream()).writeBytes(bytes);
+                liveBytes += bytes.length;
+            } else {
+                ByteArrayOutputStream intents = live.remove(executionId);
+                if (intents != null) {
+                    liveBytes -= intents.size();
+                }
+            }
+            pending.writeBytes(bytes);
+            long sequence = ++appendedSequence;
+            records.increment();
+            queued.signal();
+            while (await && durableSequence < sequence) {
+                durable.awaitUninterruptibly();
+            }
+            if (await && failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            long sequence;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    queued.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (commitWindowNanos > 0) {
+                // Lets more executions join this sync
+                LockSupport.parkNanos(commitWindowNanos);
+            }
+            lock.lock();
+            try {
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+                sequence = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                syncs.increment();
+            } catch (IOException e) {
+                error = e;
+            }
+            byte[] compacted = null;
+            lock.lock();
+            try {
+                if (error != null) {
+                    // The log can no longer be trusted: every later append fails too
+                    failure = error;
+                } else {
+                    fileSize += batch.length;
+                }
+                durableSequence = sequence;
+                durable.signalAll();
+                // The snapshot must match the file exactly: nothing appended since this flush
+                if (failure == null && pending.size() == 0 && fileSize >= compactionThreshold && liveBytes * 2 < fileSize) {
+                    ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+                    live.values().forEach(intents -> snapshot.writeBytes(intents.toByteArray()));
+                    compacted = snapshot.toByteArray();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (compacted != null) {
+                compact(compacted);
+            }
+        }
+    }
+
+    // Runs on the flusher, so no write can interleave; records appended meanwhile stay queued and
+    // go to the new file on the next flush
+    private void compact(byte[] snapshot) {
+        Path next = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(next, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            FileChannel reopened = open(path);
+            reopened.position(snapshot.length);
+            lock.lock();
+            try {
+                channel.close();
+                channel = reopened;
+                fileSize = snapshot.length;
+            } finally {
+                lock.unlock();
+            }
+            compactions.increment();
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Record: int bodyLength | byte type | utf executionId | [utf type | utf argument] | int crc32(body)
+    private static void encode(ByteArrayOutputStream out, byte type, String executionId, CompensationDescriptor descriptor) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(body)) {
+            data.writeByte(type);
+            data.writeUTF(executionId);
+            if (descriptor != null) {
+                data.writeUTF(descriptor.type());
+                data.writeUTF(descriptor.argument());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(bytes.length + 2 * Integer.BYTES);
+        record.putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+        out.writeBytes(record.array());
+    }
+
+    // Streams the log up to the first torn or damaged record and positions the channel after it.
+    // The file is read through a buffer, its size is not limited by what fits in one array.
+    private Map<String, List<CompensationDescriptor>> read() throws IOException {
+        Map<String, List<CompensationDescriptor>> open = new LinkedHashMap<>();
+        long size = channel.size();
+        channel.position(0);
+        // Not closed: that would close the channel
+        DataInputStream file = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        long valid = 0;
+        while (size - valid >= Integer.BYTES) {
+            int length = file.readInt();
+            if (length <= 0 || size - valid - Integer.BYTES < (long) length + Integer.BYTES) {
+                break;
+            }
+            byte[] body = new byte[length];
+            file.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != file.readInt()) {
+                break;
+            }
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(body));
+            byte type = fields.readByte();
+            String executionId = fields.readUTF();
+            if (type == INTENT) {
+                open.computeIfAbsent(executionId, id -> new ArrayList<>())
+                        .add(new CompensationDescriptor(fields.readUTF(), fields.readUTF()));
+            } else {
+                open.remove(executionId);
+            }
+            valid += length + 2L * Integer.BYTES;
+        }
+        // Anything after the last valid record is a torn write: it is overwritten from here on
+        channel.truncate(valid);
+        channel.position(valid);
+        fileSize = valid;
+        return open;
+    }
+
+    private void truncate() {
+        lock.lock();
+        try {
+            // Only safe while nothing is queued: the flusher writes at the channel position
+            if (pending.size() == 0 && durableSequence == appendedSequence) {
+                channel.truncate(0);
+                channel.position(0);
+                fileSize = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    public long getCompactionCount() {
+        return compactions.sum();
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.acme.pattern.compensation;
+
+import org.acme.pattern.RollbackCallback;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Compensating actions by descriptor type, registered at startup before recovery runs
+public class CompensationRegistry {
+    private final Map<String, Consumer<String>> actions = new ConcurrentHashMap<>();
+
+    public CompensationRegistry register(String type, Consumer<String> action) {
+        actions.put(type, action);
+        return this;
+    }
+
+    public RollbackCallback resolve(CompensationDescriptor descriptor) {
+        Consumer<String> action = actions.get(descriptor.type());
+        if (action == null) {
+            throw new IllegalStateException("No compensation registered for type " + descriptor.type());
+        }
+        return () -> action.accept(descriptor.argument());
+    }
+
+    public Compensation compensation(CompensationDescriptor descriptor) {
+        return Compensation.durable(descriptor.type(), descriptor, resolve(descriptor));
+    }
+}
@@ -0,0 +1,40 @@
+package org.acme.pattern.compensation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CompensationReport {
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT,   // Exceeded the per-callback timeout or was still running at the overall deadline
+        SKIPPED      // Not started before the overall deadline
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Outcome {
+        private final String name;
+        private final Status status;
+        private final Throwable error;
+        private final long durationNanos;
+    }
+
+    private final List<Outcome> outcomes;
+
+    public boolean isComplete() {
+        return outcomes.stream().allMatch(outcome -> outcome.getStatus() == Status.SUCCEEDED);
+    }
+
+    public List<Outcome> succeeded() {
+        return outcomes.stream().filter(outcome -> outcome.getStatus() == Status.SUCCEEDED).toList();
+    }
+
+    public List<Outcome> unsuccessful() {
+        return outcomes.stream().filter(outcome -> outcome.getStatus() != Status.SUCCEEDED).toList();
+    }
+}
@@ -3,15 +3,23 @@ package org.acme.pattern.context;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.transaction.TransactionScoped;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.acme.pattern.RollbackCallback;
+import org.acme.pattern.compensation.Compensation;
+import org.acme.pattern.compensation.CompensationLog;
+import org.acme.pattern.events.StepEvent;
+import org.acme.pattern.events.StepEventSink;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 @Getter
@@ -19,18 +27,56 @@ import java.util.logging.Logger;
 @TransactionScoped
 public class BaseTransactionContext{
     //        executedSteps.add("Step completed at: " + LocalDateTime.now() + "on Obj: " + result.getClass());
+    private static final int PAGE_BITS = 5;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
     @Setter
-    private Object intermediateResult;
-    private final List<String> executedSteps = new ArrayList<>();
-    private Exception error;
+    private volatile Object intermediateResult;
+    private final List<String> executedSteps = Collections.synchronizedList(new ArrayList<>());
+    private volatile Exception error;
+    // Identifies the execution across retries, used to find its checkpoints
+    private volatile String executionId;
+    // Set while an execution runs with a CompensationLog: durable compensations log their intent
+    private volatile CompensationLog compensationLog;
+    // String keyed data, kept as the slower compatibility path next to the ContextKey slots
     private final Map<String, Object> contextData = new ConcurrentHashMap<>();
-    @Getter
-    private final List<RollbackCallback> rollbackCallbacks = new ArrayList<>();
+    // Appended while stages run, read once on failure. A copy-on-write list made every registration
+    // copy the whole array; readers now take a snapshot under the list's lock instead.
+    @Getter(AccessLevel.NONE)
+    private final List<Compensation> compensations = Collections.synchronizedList(new ArrayList<>());
+    // Numbers the unnamed rollback callbacks, unique within the context even under concurrent adds
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger rollbackNames = new AtomicInteger();
+    // ContextKey slots, split in fixed pages allocated on first use so they never have to be copied
+    @Getter(AccessLevel.NONE)
+    private final AtomicReferenceArray<AtomicReferenceArray<Object>> slotPages =
+            new AtomicReferenceArray<>(ContextKey.MAX_SLOTS / PAGE_SIZE);
+
+    // Sink used by contexts created from now on, NOOP unless the application installs one at startup
+    private static volatile StepEventSink defaultStepEventSink = StepEventSink.NOOP;
+    private StepEventSink stepEventSink = defaultStepEventSink;
+
+    public static void setDefaultStepEventSink(StepEventSink sink) {
+        defaultStepEventSink = sink;
+    }
 
     @PostConstruct
     void onBeginTransaction() {
+        reset();
+    }
+
+    // Brings the context back to its freshly created state so it can be reused by another execution
+    public void reset() {
+        intermediateResult = null;
+        error = null;
+        executionId = null;
+        compensationLog = null;
         executedSteps.clear();
         contextData.clear();
+        compensations.clear();
+        rollbackNames.set(0);
+        clearSlots();
+        stepEventSink = defaultStepEventSink;
     }
 
     @SuppressWarnings("unchecked")
@@ -47,13 +93,123 @@ public class BaseTransactionContext{
         return (T) contextData.get(key);
     }
 
+    public <T> void put(ContextKey<T> key, T value) {
+        int slot = key.getSlot();
+        page(slot).set(slot & (PAGE_SIZE - 1), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        int slot = key.getSlot();
+        AtomicReferenceArray<Object> page = slotPages.get(slot >>> PAGE_BITS);
+        return page == null ? null : (T) page.get(slot & (PAGE_SIZE - 1));
+    }
+
+    public <T> T remove(ContextKey<T> key) {
+        int slot = key.getSlot();
+        AtomicReferenceArray<Object> page = slotPages.get(slot >>> PAGE_BITS);
+        @SuppressWarnings("unchecked")
+        T previous = page == null ? null : (T) page.getAndSet(slot & (PAGE_SIZE - 1), null);
+        return previous;
+    }
+
+    private AtomicReferenceArray<Object> page(int slot) {
+        int index = slot >>> PAGE_BITS;
+        AtomicReferenceArray<Object> page = slotPages.get(index);
+        if (page == null) {
+            slotPages.compareAndSet(index, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = slotPages.get(index);
+        }
+        return page;
+    }
+
+    private void clearSlots() {
+        for (int i = 0; i < slotPages.length(); i++) {
+            AtomicReferenceArray<Object> page = slotPages.get(i);
+            if (page != null) {
+                for (int j = 0; j < PAGE_SIZE; j++) {
+                    page.lazySet(j, null);
+                }
+            }
+        }
+    }
+
+    private void copySlotsTo(BaseTransactionContext target) {
+        for (int i = 0; i < slotPages.length(); i++) {
+            AtomicReferenceArray<Object> page = slotPages.get(i);
+            if (page != null) {
+                for (int j = 0; j < PAGE_SIZE; j++) {
+                    Object value = page.get(j);
+                    if (value != null) {
+                        target.page(i << PAGE_BITS).set(j, value);
+                    }
+                }
+            }
+        }
+    }
+
+    // Snapshot in registration order: later registrations do not show up in it
+    public List<Compensation> getCompensations() {
+        return List.copyOf(compensations);
+    }
+
+    // Snapshot as well, no longer the live list: adding to it registers nothing
+    public List<RollbackCallback> getRollbackCallbacks() {
+        return getCompensations().stream().map(Compensation::getCallback).toList();
+    }
+
+    // Registered with the default ordering: runs after every compensation registered later
     public void addRollbackCallback(RollbackCallback callback) {
-        rollbackCallbacks.add(callback);
+        compensations.add(Compensation.of("rollback-" + rollbackNames.getAndIncrement(), callback));
+    }
+
+    // A durable compensation is on disk when this returns, so stages register it before applying the
+    // effect it undoes
+    public void addCompensation(Compensation compensation) {
+        CompensationLog log = compensationLog;
+        String id = executionId;
+        if (log != null && id != null && compensation.isDurable()) {
+            log.intents(id, List.of(compensation.getDescriptor()));
+        }
+        compensations.add(compensation);
+    }
+
+    // Isolated child view for work running in parallel: starts from a snapshot of the
+    // context data, and its steps and rollback callbacks are only seen once merged back.
+    public BaseTransactionContext fork() {
+        BaseTransactionContext child = new BaseTransactionContext();
+        child.stepEventSink = stepEventSink;
+        child.executionId = executionId;
+        child.compensationLog = compensationLog;
+        child.contextData.putAll(contextData);
+        copySlotsTo(child);
+        return child;
+    }
+
+    // Context of one execution of a pipeline whose handlers are shared: a fork that also starts with
+    // the compensations registered here so far, i.e. the pipeline-wide ones. What the execution
+    // registers stays in it and is dropped with it.
+    public BaseTransactionContext forkExecution() {
+        BaseTransactionContext execution = fork();
+        execution.compensations.addAll(compensations);
+        execution.rollbackNames.set(rollbackNames.get());
+        return execution;
+    }
+
+    public void merge(BaseTransactionContext child) {
+        executedSteps.addAll(child.executedSteps);
+        compensations.addAll(child.compensations);
     }
 
     public void logStep(String message) {
         executedSteps.add(message);
-        System.out.println(message);
+        if (stepEventSink.isEnabled()) {
+            stepEventSink.publish(StepEvent.step(message));
+        }
+    }
+
+    public void logStep(StepEvent event) {
+        stepEventSink.publish(event);
     }
 
     @PreDestroy
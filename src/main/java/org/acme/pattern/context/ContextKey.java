@@ -0,0 +1,36 @@
+package org.acme.pattern.context;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Typed handle to a fixed slot of BaseTransactionContext. Keys are meant to be created once,
+// as static constants: every call to of() reserves a new slot.
+@Getter
+public final class ContextKey<T> {
+    static final int MAX_SLOTS = 2048;
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    private final String name;
+    private final Class<T> type;
+    private final int slot;
+
+    private ContextKey(String name, Class<T> type, int slot) {
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+    }
+
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        int slot = NEXT_SLOT.getAndIncrement();
+        if (slot >= MAX_SLOTS) {
+            throw new IllegalStateException("Too many context keys, " + name + " exceeds " + MAX_SLOTS + " slots");
+        }
+        return new ContextKey<>(name, type, slot);
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey[" + name + ": " + type.getSimpleName() + " @" + slot + "]";
+    }
+}
@@ -0,0 +1,61 @@
+package org.acme.pattern.context;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free pool of reusable contexts. acquire/release probe a few slots from a random start
+// and fall back to creating (or dropping) a context, so they never block and never allocate
+// while the pool is warm.
+public class ContextPool {
+    private static final int PROBES = 8;
+
+    private final AtomicReferenceArray<BaseTransactionContext> slots;
+    private final int mask;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    public ContextPool(int capacity) {
+        int size = capacity <= PROBES ? PROBES : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public BaseTransactionContext acquire() {
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            BaseTransactionContext context = slots.get(index);
+            if (context != null && slots.compareAndSet(index, context, null)) {
+                reused.increment();
+                return context;
+            }
+        }
+        created.increment();
+        return new BaseTransactionContext();
+    }
+
+    public void release(BaseTransactionContext context) {
+        context.reset();
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, context)) {
+                return;
+            }
+        }
+        // Pool is full around this start position: let the context be collected
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getReusedCount() {
+        return reused.sum();
+    }
+}
@@ -0,0 +1,131 @@
+package org.acme.pattern.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Bounded multi-producer / single-consumer ring buffer. Producers claim a slot with one CAS and
+// never block: when the buffer is full the event is dropped and counted. A background daemon
+// thread drains the buffer into the consumer, keeping console/log I/O off the pipeline threads.
+public class RingBufferStepEventSink implements StepEventSink, AutoCloseable {
+    private static final long IDLE_PARK_NANOS = 100_000L;
+
+    private final int mask;
+    private final AtomicReferenceArray<StepEvent> buffer;
+    // Per-slot sequence: equals the claim position when free, position + 1 once published
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;  // consumer thread only
+    private final LongAdder dropped = new LongAdder();
+    private final Predicate<StepEvent> filter;
+    private final Consumer<StepEvent> consumer;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public RingBufferStepEventSink(int capacity, Predicate<StepEvent> filter, Consumer<StepEvent> consumer) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.filter = filter;
+        this.consumer = consumer;
+        this.drainer = Thread.ofPlatform().daemon().name("step-event-drainer").start(this::drainLoop);
+    }
+
+    public static RingBufferStepEventSink toLogger(int capacity) {
+        Logger logger = Logger.getLogger("org.acme.pattern.steps");
+        return new RingBufferStepEventSink(capacity, event -> true, event ->
+                logger.log(event.isFailure() ? Level.WARNING : Level.INFO, format(event), event.error()));
+    }
+
+    @Override
+    public void publish(StepEvent event) {
+        if (!filter.test(event)) {
+            return;
+        }
+        long position;
+        int index;
+        for (;;) {
+            position = tail.get();
+            index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                // The consumer has not freed this slot yet: the buffer is full
+                dropped.increment();
+                return;
+            }
+        }
+        buffer.lazySet(index, event);
+        sequences.set(index, position + 1);
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int drained = 0;
+        for (;;) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                return drained;
+            }
+            StepEvent event = buffer.get(index);
+            buffer.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+            try {
+                consumer.accept(event);
+            } catch (RuntimeException e) {
+                // A failing consumer must not kill the drainer
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String format(StepEvent event) {
+        StringBuilder line = new StringBuilder(64).append('[').append(event.type()).append(']');
+        if (event.stage() != null) {
+            line.append(' ').append(event.stage());
+        }
+        if (event.message() != null) {
+            line.append(' ').append(event.message());
+        }
+        return line.append(" on thread: ").append(event.thread()).toString();
+    }
+}
@@ -0,0 +1,24 @@
+package org.acme.pattern.events;
+
+// Structured step event: creating one is a single small allocation, formatting is left to the sink
+public record StepEvent(Type type, String stage, String message, Throwable error, String thread, long timestampNanos) {
+
+    public enum Type {
+        STEP,
+        PIPELINE_COMPLETED,
+        PIPELINE_FAILED,
+        ROLLBACK_FAILED
+    }
+
+    public static StepEvent of(Type type, String stage, String message, Throwable error) {
+        return new StepEvent(type, stage, message, error, Thread.currentThread().getName(), System.nanoTime());
+    }
+
+    public static StepEvent step(String message) {
+        return of(Type.STEP, null, message, null);
+    }
+
+    public boolean isFailure() {
+        return error != null;
+    }
+}
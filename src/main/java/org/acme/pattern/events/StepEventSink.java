@@ -0,0 +1,23 @@
+package org.acme.pattern.events;
+
+@FunctionalInterface
+public interface StepEventSink {
+
+    // Production default: drops everything, and tells callers not to build events at all
+    StepEventSink NOOP = new StepEventSink() {
+        @Override
+        public void publish(StepEvent event) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    void publish(StepEvent event);
+
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+package org.acme.pattern.exceptions;
+
+public class LimitExceededException extends RuntimeException {
+    public LimitExceededException(String message) {
+        super("Concurrency limit exceeded on stage: " + message);
+    }
+}
@@ -0,0 +1,100 @@
+package org.acme.pattern.handlers;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.limit.AdaptiveLimiter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Runs the delegate under an AdaptiveLimiter: callers over the limit wait in its queue or are shed
+// with a LimitExceededException, and every call's latency feeds the limit
+public class AdaptiveLimitHandler<I, O> implements Handler<I, O> {
+    private final Handler<I, O> delegate;
+    private final AdaptiveLimiter limiter;
+
+    public AdaptiveLimitHandler(Handler<I, O> delegate, AdaptiveLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public O process(I input) {
+        return limited(() -> delegate.process(input));
+    }
+
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        return limited(() -> delegate.process(input, context));
+    }
+
+    private O limited(Supplier<O> call) {
+        limiter.acquireBlocking();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            O output = call.get();
+            failed = false;
+            return output;
+        } finally {
+            limiter.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public void setContext(BaseTransactionContext context) {
+        delegate.setContext(context);
+    }
+
+    // Waiting for a permit does not block a thread: the Uni resumes when one is granted
+    public static <I, O> MutinyHandler<I, O> mutiny(MutinyHandler<I, O> delegate, AdaptiveLimiter limiter) {
+        return new MutinyHandler<>() {
+            @Override
+            public Uni<O> process(I input) {
+                return limited(() -> delegate.process(input));
+            }
+
+            @Override
+            public Uni<O> process(I input, BaseTransactionContext context) {
+                return limited(() -> delegate.process(input, context));
+            }
+
+            private Uni<O> limited(Supplier<Uni<O>> call) {
+                return Uni.createFrom().deferred(() -> {
+                    CompletableFuture<Void> permit = limiter.acquire();
+                    AtomicLong start = new AtomicLong();
+                    AtomicBoolean started = new AtomicBoolean();
+                    // The termination callback may run twice when a cancellation races the result
+                    AtomicBoolean released = new AtomicBoolean();
+                    return Uni.createFrom().completionStage(permit)
+                            .onItem().transformToUni(ignored -> {
+                                start.set(System.nanoTime());
+                                started.set(true);
+                                try {
+                                    return call.get();
+                                } catch (RuntimeException e) {
+                                    return Uni.createFrom().failure(e);
+                                }
+                            })
+                            .onTermination().invoke((output, failure, cancelled) -> {
+                                // A queued permit is withdrawn; once granted, cancelling it fails and
+                                // the permit is held even if the cancellation came before the call ran
+                                if (permit.cancel(false) || permit.isCompletedExceptionally()
+                                        || !released.compareAndSet(false, true)) {
+                                    return;
+                                }
+                                if (started.get()) {
+                                    limiter.release(System.nanoTime() - start.get(), failure != null || cancelled);
+                                } else {
+                                    limiter.giveBack();
+                                }
+                            });
+                });
+            }
+        };
+    }
+}
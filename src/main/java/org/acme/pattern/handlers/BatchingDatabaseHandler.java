@@ -0,0 +1,61 @@
+package org.acme.pattern.handlers;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+// Write-behind variant of DatabaseHandler: inputs from concurrent executions are gathered into
+// micro-batches and written with one bulk repository call. Each execution still blocks until its
+// own output is back, so the pipeline keeps its per-request semantics. The bulk call runs on the
+// thread that completed the batch, outside of the callers' transactions.
+public class BatchingDatabaseHandler<I, O, R> implements Handler<I, O>, AutoCloseable {
+    private final R repository;
+    private final MicroBatcher<I, O> batcher;
+    // Undoes one item, registered in the execution's context once that item's output is back
+    private final BiConsumer<O, R> itemRollback;
+
+    public BatchingDatabaseHandler(R repository, BiFunction<List<I>, R, List<O>> operation,
+                                   BiConsumer<O, R> itemRollback, int maxBatchSize, Duration maxDelay) {
+        this.repository = repository;
+        this.itemRollback = itemRollback;
+        this.batcher = new MicroBatcher<>(inputs -> operation.apply(inputs, repository), maxBatchSize, maxDelay);
+    }
+
+    // Without an execution context there is nowhere to register the item's rollback: a context
+    // bound by setContext is shared by every execution, and a failure would undo all their items
+    @Override
+    public O process(I input) {
+        return process(input, null);
+    }
+
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        O output;
+        try {
+            output = batcher.submit(input).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (itemRollback != null && context != null) {
+            context.addRollbackCallback(() -> itemRollback.accept(output, repository));
+        }
+        return output;
+    }
+
+    public MicroBatcher<I, O> getBatcher() {
+        return batcher;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+}
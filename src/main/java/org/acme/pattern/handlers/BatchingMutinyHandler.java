@@ -0,0 +1,35 @@
+package org.acme.pattern.handlers;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.MutinyHandler;
+
+import java.time.Duration;
+import java.util.List;
+
+// Reactive stage that gathers items from concurrent executions into windows of up to
+// maxBatchSize items or maxDelay, and calls the bulk handler once per window. Each execution's Uni
+// completes with its own output, or with the window's failure. Nothing blocks: the bulk Uni is
+// subscribed by the caller that fills the window or by the batch timer.
+// The bulk handler serves several executions at once, so it is called without an execution context.
+public class BatchingMutinyHandler<I, O> implements MutinyHandler<I, O>, AutoCloseable {
+    private final MicroBatcher<I, O> batcher;
+
+    public BatchingMutinyHandler(MutinyHandler<List<I>, List<O>> bulk, int maxBatchSize, Duration maxDelay) {
+        this.batcher = MicroBatcher.async(inputs -> bulk.process(inputs).subscribeAsCompletionStage(),
+                maxBatchSize, maxDelay);
+    }
+
+    @Override
+    public Uni<O> process(I input) {
+        return Uni.createFrom().completionStage(() -> batcher.submit(input));
+    }
+
+    public MicroBatcher<I, O> getBatcher() {
+        return batcher;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+}
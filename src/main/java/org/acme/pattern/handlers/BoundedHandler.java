@@ -0,0 +1,50 @@
+package org.acme.pattern.handlers;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+
+import java.util.concurrent.Semaphore;
+
+// Caps how many threads may be inside the delegate at once. Waiting is cheap on virtual
+// threads, so this is how a blocking stage is protected from an unbounded number of callers.
+public class BoundedHandler<I, O> implements Handler<I, O> {
+    private final Handler<I, O> delegate;
+    private final Semaphore permits;
+
+    public BoundedHandler(Handler<I, O> delegate, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public O process(I input) {
+        permits.acquireUninterruptibly();
+        try {
+            return delegate.process(input);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        permits.acquireUninterruptibly();
+        try {
+            return delegate.process(input, context);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void setContext(BaseTransactionContext context) {
+        delegate.setContext(context);
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,56 @@
+package org.acme.pattern.handlers;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.cache.StageCache;
+import org.acme.pattern.context.BaseTransactionContext;
+
+// Memoizes a stage that is a pure function of its input: a hit skips the delegate entirely, so the
+// delegate must not register rollbacks or rely on per-execution state.
+public class CachingHandler<I, O> implements Handler<I, O> {
+    private final Handler<I, O> delegate;
+    private final StageCache<I, O> cache;
+
+    public CachingHandler(Handler<I, O> delegate, StageCache<I, O> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public O process(I input) {
+        return cache.get(input, delegate::process);
+    }
+
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        return cache.get(input, key -> delegate.process(key, context));
+    }
+
+    @Override
+    public void setContext(BaseTransactionContext context) {
+        delegate.setContext(context);
+    }
+
+    public StageCache<I, O> getCache() {
+        return cache;
+    }
+
+    // Same for reactive stages; concurrent misses share one subscription to the delegate's Uni, and
+    // each subscriber waits on its own copy of the entry, so its cancellation stays its own
+    public static <I, O> MutinyHandler<I, O> mutiny(MutinyHandler<I, O> delegate, StageCache<I, O> cache) {
+        return new MutinyHandler<>() {
+            @Override
+            public Uni<O> process(I input) {
+                return Uni.createFrom().completionStage(() ->
+                        cache.getAsync(input, key -> delegate.process(key).subscribeAsCompletionStage()));
+            }
+
+            @Override
+            public Uni<O> process(I input, BaseTransactionContext context) {
+                return Uni.createFrom().completionStage(() ->
+                        cache.getAsync(input, key -> delegate.process(key, context).subscribeAsCompletionStage()));
+            }
+        };
+    }
+}
@@ -4,25 +4,57 @@ import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.acme.pattern.Handler;
 import org.acme.pattern.RollbackCallback;
+import org.acme.pattern.compensation.CompensationDescriptor;
+import org.acme.pattern.compensation.CompensationRegistry;
 import org.acme.pattern.context.BaseTransactionContext;
 
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class DatabaseHandler<I, O, R> implements Handler<I, O> {
     private final R repository;
     private final BiFunction<I, R, O> operation;
 //    private final RollbackCallback<R> rollbackCallback;
     private final RollbackCallback rollbackCallback;
+    // Set when the rollback is registered as a durable compensation instead of a plain callback
+    private final Function<I, CompensationDescriptor> descriptor;
+    private final CompensationRegistry registry;
     private BaseTransactionContext context;
 
     public DatabaseHandler(R repository, BiFunction<I, R, O> operation, RollbackCallback rollbackCallback) {
         this.repository = repository;
         this.operation = operation;
         this.rollbackCallback = rollbackCallback;
+        this.descriptor = null;
+        this.registry = null;
+    }
+
+    // The rollback is described rather than captured in a lambda, so a CompensationLog can replay it
+    // after a restart; the registry turns the descriptor into the compensating action.
+    public DatabaseHandler(R repository, BiFunction<I, R, O> operation,
+                           CompensationDescriptor descriptor, CompensationRegistry registry) {
+        this(repository, operation, input -> descriptor, registry);
+    }
+
+    // Descriptor built from the input, e.g. the key of the row to insert; an operation whose key is
+    // generated must take it pre-allocated in its input. The compensation is registered, and its
+    // intent logged, before the operation runs: a crash or a failure can leave an intent whose effect
+    // never happened, so the registered action must be a no-op for an entity that does not exist.
+    public DatabaseHandler(R repository, BiFunction<I, R, O> operation,
+                           Function<I, CompensationDescriptor> descriptor, CompensationRegistry registry) {
+        this.repository = repository;
+        this.operation = operation;
+        this.rollbackCallback = null;
+        this.descriptor = descriptor;
+        this.registry = registry;
     }
 
     @Override
     public void setContext(BaseTransactionContext context) {
+        // Durable compensations depend on the input, they are only registered per execution
+        if (descriptor != null) {
+            return;
+        }
         this.context = context;
         // Automatically register the rollback callback in the context
 //        context.addRollbackCallback((repo, ctx) -> rollbackCallback.rollback(this.repository, this.context));
@@ -34,4 +66,19 @@ public class DatabaseHandler<I, O, R> implements Handler<I, O> {
     public O process(I input) {
         return operation.apply(input, repository);
     }
+
+    // Per-execution registration: the handler keeps no reference to the context and can be shared.
+    // Once bound by setContext the rollback is pipeline wide, every execution context already has it.
+    @Transactional
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        if (descriptor != null) {
+            context.addCompensation(registry.compensation(descriptor.apply(input)));
+            return operation.apply(input, repository);
+        }
+        if (this.context == null) {
+            context.addRollbackCallback(rollbackCallback);
+        }
+        return operation.apply(input, repository);
+    }
 }
@@ -0,0 +1,107 @@
+package org.acme.pattern.handlers;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class ForkJoinHandler<I, P, Q, O> implements Handler<I, O> {
+    private final Function<I, List<P>> splitter;
+    // A fresh handler per part, so stateful handlers get their own forked context
+    private final Supplier<? extends Handler<P, Q>> partHandler;
+    private final Function<List<Q>, O> merger;
+    private final ForkJoinPool pool;
+
+    public ForkJoinHandler(Function<I, List<P>> splitter, Supplier<? extends Handler<P, Q>> partHandler, Function<List<Q>, O> merger) {
+        this(splitter, partHandler, merger, ForkJoinPool.commonPool());
+    }
+
+    public ForkJoinHandler(Function<I, List<P>> splitter, Supplier<? extends Handler<P, Q>> partHandler, Function<List<Q>, O> merger, ForkJoinPool pool) {
+        this.splitter = splitter;
+        this.partHandler = partHandler;
+        this.merger = merger;
+        this.pool = pool;
+    }
+
+    // The parts' steps and rollbacks are merged into the execution's context. A context bound by
+    // setContext would be shared by every execution and keep growing, so without one they are dropped.
+    @Override
+    public O process(I input) {
+        return process(input, null);
+    }
+
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        List<P> parts = splitter.apply(input);
+        List<PartTask> tasks = new ArrayList<>(parts.size());
+        for (P part : parts) {
+            tasks.add(new PartTask(part, context != null ? context.fork() : new BaseTransactionContext()));
+        }
+
+        RecursiveAction fanOut = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        };
+        if (ForkJoinTask.getPool() == pool) {
+            fanOut.invoke();
+        } else {
+            pool.invoke(fanOut);
+        }
+
+        // Merge every part back, failed ones included, so their rollbacks reach Pipeline.execute
+        RuntimeException failure = null;
+        List<Q> results = new ArrayList<>(tasks.size());
+        for (PartTask task : tasks) {
+            if (context != null) {
+                context.merge(task.partContext);
+            }
+            if (task.error != null) {
+                if (failure == null) {
+                    failure = task.error;
+                } else {
+                    failure.addSuppressed(task.error);
+                }
+            }
+            results.add(task.result);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return merger.apply(results);
+    }
+
+    private class PartTask extends RecursiveAction {
+        private final P part;
+        private final BaseTransactionContext partContext;
+        private Q result;
+        // Kept here instead of thrown, ForkJoinTask.join() may rethrow a copy of the original
+        private RuntimeException error;
+
+        PartTask(P part, BaseTransactionContext partContext) {
+            this.part = part;
+            this.partContext = partContext;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // Bound as well, for handlers that only register their rollbacks in setContext
+                Handler<P, Q> handler = partHandler.get();
+                handler.setContext(partContext);
+                result = handler.process(part, partContext);
+                partContext.setIntermediateResult(result);
+            } catch (RuntimeException e) {
+                partContext.setError(e);
+                error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.acme.pattern.handlers;
+
+import io.smallrye.mutiny.TimeoutException;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.metrics.LatencyHistogram;
+import org.acme.pattern.metrics.PipelineMetrics;
+import org.acme.pattern.metrics.StageMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Cuts the latency tail of a reactive stage. When the first attempt is still running after the
+// hedge delay, a second one is issued and the first to finish wins, the other is cancelled. A failed
+// attempt leaves the call to the other one when that was issued: the call fails once both failed.
+// The delay is a percentile of the attempts' own latency, so roughly (100 - percentile)% of calls
+// are hedged.
+// The whole call is bounded by the timeout, after which the fallback (if any) provides the result.
+// Both attempts run the delegate with the same input and context: it must be idempotent and must
+// not register compensations.
+public class HedgingHandler<I, O> implements MutinyHandler<I, O> {
+    private final String stage;
+    private final MutinyHandler<I, O> delegate;
+    private final StageMetrics metrics;
+    // Latency of single attempts, not of hedged calls, or hedging would keep lowering its own delay.
+    // A first attempt cancelled by a hedge or a timeout counts with the time it had run, a lower
+    // bound of its latency: leaving the slow attempts out would lower the delay just the same.
+    private final LatencyHistogram attempts = new LatencyHistogram();
+    private final double percentile;
+    private final long minSamples;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final Duration timeout;
+    private final Function<I, O> fallback;
+
+    private HedgingHandler(Builder<I, O> builder) {
+        this.stage = builder.stage;
+        this.delegate = builder.delegate;
+        this.metrics = PipelineMetrics.stage(builder.stage);
+        this.percentile = builder.percentile;
+        this.minSamples = builder.minSamples;
+        this.minDelayNanos = builder.minDelay.toNanos();
+        this.maxDelayNanos = builder.maxDelay.toNanos();
+        this.timeout = builder.timeout;
+        this.fallback = builder.fallback;
+    }
+
+    public static <I, O> Builder<I, O> builder(String stage, MutinyHandler<I, O> delegate) {
+        return new Builder<>(stage, delegate);
+    }
+
+    @Override
+    public Uni<O> process(I input) {
+        return bounded(input, () -> delegate.process(input));
+    }
+
+    @Override
+    public Uni<O> process(I input, BaseTransactionContext context) {
+        return bounded(input, () -> delegate.process(input, context));
+    }
+
+    private Uni<O> bounded(I input, Supplier<Uni<O>> call) {
+        Uni<O> hedged = Uni.createFrom().deferred(() -> hedged(call));
+        if (timeout == null) {
+            return hedged;
+        }
+        Uni<O> timed = hedged.ifNoItem().after(timeout).fail()
+                .onFailure(TimeoutException.class).invoke(metrics::recordTimeout);
+        return fallback == null ? timed
+                : timed.onFailure(TimeoutException.class).recoverWithItem(() -> fallback.apply(input));
+    }
+
+    private Uni<O> hedged(Supplier<Uni<O>> call) {
+        long delay = hedgeDelayNanos();
+        if (delay < 0) {
+            return attempt(call, true);
+        }
+        return Uni.createFrom().emitter(emitter -> new Race(emitter).start(call, delay));
+    }
+
+    // A cancelled hedge is not recorded: it only ran for a moment after the first attempt's delay
+    private Uni<O> attempt(Supplier<Uni<O>> call, boolean recordCancellation) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            Uni<O> attempt = call.get().onItem().invoke(() -> attempts.record(System.nanoTime() - start));
+            return recordCancellation
+                    ? attempt.onCancellation().invoke(() -> attempts.record(System.nanoTime() - start))
+                    : attempt;
+        });
+    }
+
+    // -1 while there are too few samples to pick a meaningful delay
+    long hedgeDelayNanos() {
+        if (attempts.getCount() < minSamples) {
+            return -1;
+        }
+        long delay = attempts.getValueAtPercentile(percentile);
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, delay));
+    }
+
+    // The first attempt to emit an item settles the call and cancels the other one; a failure only
+    // does when no other attempt can still succeed. Uni.combine().any() cancels through completion
+    // stages, which does not reliably reach the attempts, so the subscriptions are kept here.
+    private final class Race {
+        private final UniEmitter<? super O> emitter;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final AtomicBoolean hedgeIssued = new AtomicBoolean();
+        // The failure of the attempt that failed first, while the other one still runs
+        private final AtomicReference<Throwable> failed = new AtomicReference<>();
+        private final AtomicReference<Cancellable> first = new AtomicReference<>();
+        private final AtomicReference<Cancellable> second = new AtomicReference<>();
+
+        private Race(UniEmitter<? super O> emitter) {
+            this.emitter = emitter;
+        }
+
+        void start(Supplier<Uni<O>> call, long delayNanos) {
+            // Also runs when the caller cancels, e.g. on timeout
+            emitter.onTermination(this::cancelAll);
+            track(first, attempt(call, true).subscribe().with(output -> settle(output, false), this::firstFailed));
+            track(second, Uni.createFrom().voidItem()
+                    .onItem().delayIt().by(Duration.ofNanos(delayNanos))
+                    .onItem().transformToUni(ignored -> {
+                        // Set before checking, so a first attempt failing now either sees it or settles first
+                        hedgeIssued.set(true);
+                        if (settled.get()) {
+                            return Uni.createFrom().<O>nothing();
+                        }
+                        metrics.recordHedge();
+                        return attempt(call, false);
+                    })
+                    .subscribe().with(output -> settle(output, true), this::attemptFailed));
+        }
+
+        private void track(AtomicReference<Cancellable> slot, Cancellable subscription) {
+            slot.set(subscription);
+            if (settled.get()) {
+                subscription.cancel();
+            }
+        }
+
+        private void settle(O output, boolean hedge) {
+            if (settled.compareAndSet(false, true)) {
+                cancelAll();
+                if (hedge) {
+                    metrics.recordHedgeWin();
+                }
+                emitter.complete(output);
+            }
+        }
+
+        // Before the hedge is issued there is nothing left to wait for
+        private void firstFailed(Throwable failure) {
+            if (hedgeIssued.get()) {
+                attemptFailed(failure);
+            } else {
+                fail(failure);
+            }
+        }
+
+        private void attemptFailed(Throwable failure) {
+            Throwable other = failed.getAndSet(failure);
+            if (other != null) {
+                if (other != failure) {
+                    failure.addSuppressed(other);
+                }
+                fail(failure);
+            }
+        }
+
+        private void fail(Throwable failure) {
+            if (settled.compareAndSet(false, true)) {
+                cancelAll();
+                emitter.fail(failure);
+            }
+        }
+
+        private void cancelAll() {
+            settled.set(true);
+            cancel(first.get());
+            cancel(second.get());
+        }
+
+        private static void cancel(Cancellable subscription) {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    public LatencyHistogram getAttemptLatency() {
+        return attempts;
+    }
+
+    public static class Builder<I, O> {
+        private final String stage;
+        private final MutinyHandler<I, O> delegate;
+        private double percentile = 95;
+        private long minSamples = 20;
+        private Duration minDelay = Duration.ofMillis(1);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        private Duration timeout;
+        private Function<I, O> fallback;
+
+        private Builder(String stage, MutinyHandler<I, O> delegate) {
+            this.stage = stage;
+            this.delegate = delegate;
+        }
+
+        // Attempt latency percentile after which the second attempt is issued
+        public Builder<I, O> percentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        // Attempts to observe before hedging starts
+        public Builder<I, O> minSamples(long minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public Builder<I, O> minDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Builder<I, O> maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        // Bounds the whole call, hedge included; without a fallback it fails with a TimeoutException
+        public Builder<I, O> timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder<I, O> fallback(Function<I, O> fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        public HedgingHandler<I, O> build() {
+            if (percentile <= 0 || percentile >= 100) {
+                throw new IllegalArgumentException("percentile must be in (0, 100): " + percentile);
+            }
+            if (minDelay.compareTo(maxDelay) > 0) {
+                throw new IllegalArgumentException("minDelay must not exceed maxDelay");
+            }
+            if (fallback != null && timeout == null) {
+                throw new IllegalArgumentException("A fallback needs a timeout");
+            }
+            return new HedgingHandler<>(this);
+        }
+    }
+}
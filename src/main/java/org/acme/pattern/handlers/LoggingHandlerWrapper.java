@@ -1,28 +1,123 @@
 package org.acme.pattern.handlers;
 
+import io.smallrye.mutiny.Uni;
 import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
 import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.metrics.PipelineMetrics;
+import org.acme.pattern.metrics.StageMetrics;
 
-import java.time.LocalDateTime;
 
 public class LoggingHandlerWrapper<I, O> implements Handler<I, O> {
     private final Handler<I, O> delegate;
+    private final StageMetrics metrics;
     private BaseTransactionContext context;
 
     public LoggingHandlerWrapper(Handler<I, O> delegate, BaseTransactionContext context) {
+        this(delegate, context, stageName(delegate, "handler", 0));
+    }
+
+    public LoggingHandlerWrapper(Handler<I, O> delegate, BaseTransactionContext context, String stageName) {
         this.delegate = delegate;
         this.context = context;
+        this.metrics = PipelineMetrics.stage(stageName);
         this.delegate.setContext(context);
     }
 
+    // Timed stage that is not bound to a context, for PipelineDefinition: the execution context is
+    // passed to every call and receives the intermediate result
+    public static <I, O> Handler<I, O> timed(Handler<I, O> delegate, String stageName) {
+        StageMetrics metrics = PipelineMetrics.stage(stageName);
+        return new Handler<>() {
+            @Override
+            public O process(I input) {
+                return process(input, null);
+            }
+
+            @Override
+            public O process(I input, BaseTransactionContext context) {
+                long start = System.nanoTime();
+                try {
+                    O output = context == null ? delegate.process(input) : delegate.process(input, context);
+                    metrics.recordSuccess(System.nanoTime() - start);
+                    if (context != null) {
+                        context.setIntermediateResult(output);
+                    }
+                    return output;
+                } catch (Exception e) {
+                    metrics.recordFailure(System.nanoTime() - start);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    // Wraps an asynchronous stage: latency runs from subscription until the item or failure
+    public static <I, O> MutinyHandler<I, O> mutiny(MutinyHandler<I, O> delegate, String stageName) {
+        StageMetrics metrics = PipelineMetrics.stage(stageName);
+        return new MutinyHandler<>() {
+            @Override
+            public Uni<O> process(I input) {
+                return timed(delegate.process(input), metrics);
+            }
+
+            @Override
+            public Uni<O> process(I input, BaseTransactionContext context) {
+                return timed(delegate.process(input, context), metrics);
+            }
+        };
+    }
+
+    private static <O> Uni<O> timed(Uni<O> uni, StageMetrics metrics) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return uni.onItemOrFailure().invoke((item, failure) -> {
+                if (failure == null) {
+                    metrics.recordSuccess(System.nanoTime() - start);
+                } else {
+                    metrics.recordFailure(System.nanoTime() - start);
+                }
+            });
+        });
+    }
+
+    // Class name for named handler classes, position in the pipeline for lambdas
+    public static String stageName(Object handler, String pipeline, int position) {
+        Class<?> type = handler.getClass();
+        return type.isSynthetic() || type.isAnonymousClass() ? stageName(pipeline, position) : type.getSimpleName();
+    }
+
+    // PipelineMetrics is process wide and keeps every stage it has seen: positional names must stay
+    // stable, so pipelines built without a name share theirs, as they share named handler classes
+    public static String stageName(String pipeline, int position) {
+        return pipeline + ".stage" + position;
+    }
+
     @Override
     public O process(I input) {
-//        String stepName = delegate.getClass().getName();
+        long start = System.nanoTime();
         try {
             O output = delegate.process(input);
+            metrics.recordSuccess(System.nanoTime() - start);
+            context.setIntermediateResult(output);
+            return output;
+        } catch (Exception e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    // Called by Pipeline with the execution's context, which gets the intermediate result
+    @Override
+    public O process(I input, BaseTransactionContext context) {
+        long start = System.nanoTime();
+        try {
+            O output = delegate.process(input, context);
+            metrics.recordSuccess(System.nanoTime() - start);
             context.setIntermediateResult(output);
             return output;
         } catch (Exception e) {
+            metrics.recordFailure(System.nanoTime() - start);
             throw e;
         }
     }
@@ -32,4 +127,8 @@ public class LoggingHandlerWrapper<I, O> implements Handler<I, O> {
         this.context = context;
         delegate.setContext(context);
     }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
 }
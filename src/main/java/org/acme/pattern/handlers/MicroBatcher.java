@@ -0,0 +1,180 @@
+package org.acme.pattern.handlers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Collects items submitted by concurrent callers and hands them to one bulk call, either when
+// maxBatchSize items are waiting or maxDelay after the first one arrived. The bulk call must
+// return one output per input, in input order; output i completes the future of input i.
+// The bulk call may also be asynchronous, then no thread waits for it.
+public class MicroBatcher<I, O> implements AutoCloseable {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("micro-batch-timer").unstarted(runnable));
+    private static final Executor VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Function<List<I>, ? extends CompletionStage<List<O>>> bulk;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    // ReentrantLock rather than synchronized: submitters are usually virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private Batch<I, O> pending;
+
+    public MicroBatcher(Function<List<I>, List<O>> bulk, int maxBatchSize, Duration maxDelay) {
+        this(maxBatchSize, maxDelay, inputs -> CompletableFuture.completedFuture(bulk.apply(inputs)));
+    }
+
+    public static <I, O> MicroBatcher<I, O> async(Function<List<I>, ? extends CompletionStage<List<O>>> bulk,
+                                                   int maxBatchSize, Duration maxDelay) {
+        return new MicroBatcher<>(maxBatchSize, maxDelay, bulk);
+    }
+
+    private MicroBatcher(int maxBatchSize, Duration maxDelay, Function<List<I>, ? extends CompletionStage<List<O>>> bulk) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.bulk = bulk;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    private static final class Batch<I, O> {
+        final List<I> inputs;
+        final List<CompletableFuture<O>> futures;
+        ScheduledFuture<?> timer;
+
+        Batch(int capacity) {
+            this.inputs = new ArrayList<>(capacity);
+            this.futures = new ArrayList<>(capacity);
+        }
+    }
+
+    public CompletableFuture<O> submit(I input) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        Batch<I, O> full = null;
+        lock.lock();
+        try {
+            if (pending == null) {
+                Batch<I, O> batch = new Batch<>(maxBatchSize);
+                pending = batch;
+                if (maxBatchSize > 1) {
+                    batch.timer = TIMER.schedule(() -> flushOnTimer(batch), maxDelayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            pending.inputs.add(input);
+            pending.futures.add(future);
+            if (pending.inputs.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            if (full.timer != null) {
+                full.timer.cancel(false);
+            }
+            // The caller that filled the batch runs it: it has to wait for its own output anyway
+            run(full);
+        }
+        return future;
+    }
+
+    // Runs whatever is waiting now, without waiting for the batch to fill up
+    public void flush() {
+        Batch<I, O> batch = take(null);
+        if (batch != null) {
+            if (batch.timer != null) {
+                batch.timer.cancel(false);
+            }
+            run(batch);
+        }
+    }
+
+    private void flushOnTimer(Batch<I, O> expected) {
+        Batch<I, O> batch = take(expected);
+        if (batch != null) {
+            // Off the timer thread, so one slow bulk call does not delay the other batchers
+            VIRTUAL_THREADS.execute(() -> run(batch));
+        }
+    }
+
+    // Detaches the pending batch, or only `expected` when it is still the pending one
+    private Batch<I, O> take(Batch<I, O> expected) {
+        lock.lock();
+        try {
+            Batch<I, O> batch = pending;
+            if (batch == null || (expected != null && batch != expected)) {
+                return null;
+            }
+            pending = null;
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(Batch<I, O> batch) {
+        int size = batch.inputs.size();
+        batches.incrementAndGet();
+        items.addAndGet(size);
+        CompletionStage<List<O>> call;
+        try {
+            call = bulk.apply(batch.inputs);
+        } catch (Throwable e) {
+            fail(batch, e);
+            return;
+        }
+        call.whenComplete((outputs, error) -> {
+            if (error != null) {
+                fail(batch, error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                complete(batch, outputs);
+            }
+        });
+    }
+
+    // The whole bulk call failed: every caller in the batch gets the error
+    private static <I, O> void fail(Batch<I, O> batch, Throwable error) {
+        batch.futures.forEach(future -> future.completeExceptionally(error));
+    }
+
+    private static <I, O> void complete(Batch<I, O> batch, List<O> outputs) {
+        int size = batch.inputs.size();
+        if (outputs == null || outputs.size() != size) {
+            IllegalStateException mismatch = new IllegalStateException("Bulk call returned "
+                    + (outputs == null ? "null" : outputs.size() + " outputs") + " for " + size + " inputs");
+            fail(batch, mismatch);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            batch.futures.get(i).complete(outputs.get(i));
+        }
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getItemCount() {
+        return items.get();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,289 @@
+package org.acme.pattern.limit;
+
+import org.acme.pattern.exceptions.LimitExceededException;
+import org.acme.pattern.metrics.ConcurrencyLimit;
+import org.acme.pattern.metrics.PipelineMetrics;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// AIMD concurrency limit driven by latency. Every call samples its round trip time: while it stays
+// within `tolerance` times the baseline (the fastest recent call) the limit grows by
+// about one per limit calls; a slower call, or a failed one, multiplies it by `backoff`. Requests
+// over the limit wait in a bounded FIFO queue and are shed once it is full or they waited too long,
+// so the stage runs near the knee of its latency curve instead of queueing inside the repository.
+public class AdaptiveLimiter implements ConcurrencyLimit {
+    private final String stage;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final double tolerance;
+    private final double backoff;
+    private final int window;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final LongAdder rejected = new LongAdder();
+    // Guarded by lock, volatile so the gauges can read them without it
+    private volatile double limit;
+    private volatile int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    private AdaptiveLimiter(Builder builder) {
+        this.stage = builder.stage;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxQueue = builder.maxQueue;
+        this.queueTimeoutNanos = builder.queueTimeout.toNanos();
+        this.tolerance = builder.tolerance;
+        this.backoff = builder.backoff;
+        this.window = builder.window;
+        this.limit = builder.initialLimit;
+        PipelineMetrics.register(this);
+    }
+
+    public static Builder builder(String stage) {
+        return new Builder(stage);
+    }
+
+    // Completes once the caller may run; fails with LimitExceededException when the request is shed
+    public CompletableFuture<Void> acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiters.size() >= maxQueue) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new LimitExceededException(stage));
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            // A cancelled waiter leaves the queue right away instead of holding a place until its
+            // timeout, where it would get callers shed while permits are free
+            waiter.whenComplete((ignored, error) -> {
+                if (waiter.isCancelled()) {
+                    withdraw(waiter);
+                }
+            });
+            CompletableFuture.delayedExecutor(queueTimeoutNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (abandon(waiter)) {
+                    waiter.completeExceptionally(new LimitExceededException(stage));
+                }
+            });
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocking form of acquire(), for synchronous stages
+    public void acquireBlocking() {
+        try {
+            acquire().join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    // True when the waiter was still queued, i.e. it timed out before getting a permit
+    private boolean abandon(CompletableFuture<Void> waiter) {
+        lock.lock();
+        try {
+            boolean removed = waiters.remove(waiter);
+            if (removed) {
+                rejected.increment();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void withdraw(CompletableFuture<Void> waiter) {
+        lock.lock();
+        try {
+            waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends a call that acquire() let through; failed calls count as overload
+    public void release(long rttNanos, boolean failed) {
+        List<CompletableFuture<Void>> granted;
+        lock.lock();
+        try {
+            inFlight--;
+            sample(rttNanos, failed);
+            granted = grant();
+        } finally {
+            lock.unlock();
+        }
+        wake(granted);
+    }
+
+    // Hands the free permits, including any the new limit added, to the oldest waiters
+    private List<CompletableFuture<Void>> grant() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        while (inFlight < (int) limit && !waiters.isEmpty()) {
+            granted.add(waiters.poll());
+            inFlight++;
+        }
+        return granted;
+    }
+
+    // Outside of the lock: completing a waiter runs the caller's continuation on this thread
+    private void wake(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> waiter : granted) {
+            if (!waiter.complete(null)) {
+                // Cancelled by the caller in the meantime
+                giveBack();
+            }
+        }
+    }
+
+    // Returns a permit whose call never ran, so there is no latency to sample
+    public void giveBack() {
+        List<CompletableFuture<Void>> granted;
+        lock.lock();
+        try {
+            inFlight--;
+            granted = grant();
+        } finally {
+            lock.unlock();
+        }
+        wake(granted);
+    }
+
+    private void sample(long rttNanos, boolean failed) {
+        windowMinNanos = Math.min(windowMinNanos, rttNanos);
+        if (++windowSamples >= window) {
+            // The baseline follows the no-load latency, which may drift as the repository changes.
+            // It rises by at most 10% per window, so sustained overload is not mistaken for it.
+            baselineNanos = baselineNanos == Long.MAX_VALUE
+                    ? windowMinNanos
+                    : Math.min(windowMinNanos, baselineNanos + baselineNanos / 10);
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        long baseline = Math.min(baselineNanos, windowMinNanos);
+        if (failed || rttNanos > baseline * tolerance) {
+            limit = Math.max(minLimit, limit * backoff);
+        } else if (inFlight + 1 >= (int) limit / 2) {
+            // Only grow while the limit is actually in use
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    @Override
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public static class Builder {
+        private final String stage;
+        private int initialLimit = 10;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private int maxQueue = 100;
+        private Duration queueTimeout = Duration.ofSeconds(1);
+        private double tolerance = 2.0;
+        private double backoff = 0.9;
+        private int window = 100;
+
+        private Builder(String stage) {
+            this.stage = stage;
+        }
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        // 0 sheds every request over the limit right away
+        public Builder maxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+            return this;
+        }
+
+        public Builder queueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+            return this;
+        }
+
+        // How many times the baseline latency a call may take before the limit backs off
+        public Builder tolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public Builder backoff(double backoff) {
+            this.backoff = backoff;
+            return this;
+        }
+
+        // Calls per baseline window
+        public Builder window(int window) {
+            this.window = window;
+            return this;
+        }
+
+        public AdaptiveLimiter build() {
+            if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Expected 0 < minLimit <= initialLimit <= maxLimit");
+            }
+            if (backoff <= 0 || backoff >= 1) {
+                throw new IllegalArgumentException("backoff must be in (0, 1): " + backoff);
+            }
+            return new AdaptiveLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.acme.pattern.metrics;
+
+// Live state of a stage's concurrency limiter, as exposed to Micrometer
+public interface ConcurrencyLimit {
+    String getStage();
+
+    int getLimit();
+
+    int getInFlight();
+
+    int getQueueDepth();
+
+    long getRejectedCount();
+}
@@ -0,0 +1,58 @@
+package org.acme.pattern.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Process wide registry of stage metrics, keyed by stage name
+public final class PipelineMetrics {
+    private static final Map<String, StageMetrics> STAGES = new ConcurrentHashMap<>();
+    private static final List<Consumer<StageMetrics>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Map<String, ConcurrencyLimit> LIMITS = new ConcurrentHashMap<>();
+    private static final List<Consumer<ConcurrencyLimit>> LIMIT_LISTENERS = new CopyOnWriteArrayList<>();
+
+    private PipelineMetrics() {
+    }
+
+    public static StageMetrics stage(String name) {
+        StageMetrics metrics = STAGES.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return STAGES.computeIfAbsent(name, key -> {
+            StageMetrics created = new StageMetrics(key);
+            LISTENERS.forEach(listener -> listener.accept(created));
+            return created;
+        });
+    }
+
+    public static Collection<StageMetrics> stages() {
+        return Collections.unmodifiableCollection(STAGES.values());
+    }
+
+    // The first limiter registered for a stage name is the one exposed
+    public static synchronized void register(ConcurrencyLimit limit) {
+        if (LIMITS.putIfAbsent(limit.getStage(), limit) == null) {
+            LIMIT_LISTENERS.forEach(listener -> listener.accept(limit));
+        }
+    }
+
+    public static Collection<ConcurrencyLimit> limits() {
+        return Collections.unmodifiableCollection(LIMITS.values());
+    }
+
+    public static synchronized void onLimit(Consumer<ConcurrencyLimit> listener) {
+        LIMIT_LISTENERS.add(listener);
+        LIMITS.values().forEach(listener);
+    }
+
+    // Called for every stage already registered and for each new one, e.g. to bind it to Micrometer
+    public static synchronized void onStage(Consumer<StageMetrics> listener) {
+        LISTENERS.add(listener);
+        STAGES.values().forEach(listener);
+    }
+}
@@ -0,0 +1,70 @@
+package org.acme.pattern.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+// Exposes every StageMetrics through Micrometer (Prometheus in the Quarkus app), tagged by stage
+@Singleton
+public class PipelineMetricsBinder implements MeterBinder {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        PipelineMetrics.onStage(stage -> bind(registry, stage));
+        PipelineMetrics.onLimit(limit -> bind(registry, limit));
+    }
+
+    private static void bind(MeterRegistry registry, ConcurrencyLimit limit) {
+        Gauge.builder("pipeline.stage.limit", limit, ConcurrencyLimit::getLimit)
+                .tag("stage", limit.getStage())
+                .register(registry);
+        Gauge.builder("pipeline.stage.inflight", limit, ConcurrencyLimit::getInFlight)
+                .tag("stage", limit.getStage())
+                .register(registry);
+        Gauge.builder("pipeline.stage.queue", limit, ConcurrencyLimit::getQueueDepth)
+                .tag("stage", limit.getStage())
+                .register(registry);
+        FunctionCounter.builder("pipeline.stage.rejected", limit, ConcurrencyLimit::getRejectedCount)
+                .tag("stage", limit.getStage())
+                .register(registry);
+    }
+
+    private static void bind(MeterRegistry registry, StageMetrics stage) {
+        FunctionCounter.builder("pipeline.stage.calls", stage, StageMetrics::getSuccessCount)
+                .tag("stage", stage.getStage())
+                .tag("outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("pipeline.stage.calls", stage, StageMetrics::getFailureCount)
+                .tag("stage", stage.getStage())
+                .tag("outcome", "failure")
+                .register(registry);
+        FunctionCounter.builder("pipeline.stage.hedges", stage, StageMetrics::getHedgeCount)
+                .tag("stage", stage.getStage())
+                .tag("outcome", "fired")
+                .register(registry);
+        FunctionCounter.builder("pipeline.stage.hedges", stage, StageMetrics::getHedgeWinCount)
+                .tag("stage", stage.getStage())
+                .tag("outcome", "won")
+                .register(registry);
+        FunctionCounter.builder("pipeline.stage.timeouts", stage, StageMetrics::getTimeoutCount)
+                .tag("stage", stage.getStage())
+                .register(registry);
+        LatencyHistogram latency = stage.getLatency();
+        for (double percentile : PERCENTILES) {
+            TimeGauge.builder("pipeline.stage.latency", latency, TimeUnit.NANOSECONDS,
+                            histogram -> histogram.getValueAtPercentile(percentile))
+                    .tag("stage", stage.getStage())
+                    .tag("quantile", String.valueOf(percentile / 100))
+                    .register(registry);
+        }
+        TimeGauge.builder("pipeline.stage.latency.max", latency, TimeUnit.NANOSECONDS, LatencyHistogram::getMax)
+                .tag("stage", stage.getStage())
+                .register(registry);
+    }
+}
@@ -0,0 +1,64 @@
+package org.acme.pattern.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+@Getter
+public class StageMetrics {
+    private final String stage;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    StageMetrics(String stage) {
+        this.stage = stage;
+    }
+
+    public void recordSuccess(long nanos) {
+        latency.record(nanos);
+        successes.increment();
+    }
+
+    public void recordFailure(long nanos) {
+        latency.record(nanos);
+        failures.increment();
+    }
+
+    // A second attempt was issued because the first one was slower than the hedge delay
+    public void recordHedge() {
+        hedges.increment();
+    }
+
+    // The second attempt finished first
+    public void recordHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+}
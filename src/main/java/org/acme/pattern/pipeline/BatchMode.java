@@ -0,0 +1,6 @@
+package org.acme.pattern.pipeline;
+
+public enum BatchMode {
+    ALL_OR_NOTHING,   // First failure rolls back and fails the whole batch
+    PER_ITEM          // Failures are recorded per item, the remaining items still run
+}
@@ -0,0 +1,50 @@
+package org.acme.pattern.pipeline;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchResult<O> {
+    // Results in input order, null at the positions that failed
+    private final List<O> results;
+    // Input index -> failure, only populated in PER_ITEM mode
+    private final Map<Integer, Throwable> failures;
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    static <O> Accumulator<O> accumulator(int expectedSize) {
+        return new Accumulator<>(expectedSize);
+    }
+
+    static final class Accumulator<O> {
+        private final List<O> results;
+        private final Map<Integer, Throwable> failures = new TreeMap<>();
+
+        private Accumulator(int expectedSize) {
+            this.results = new ArrayList<>(expectedSize);
+        }
+
+        void success(O result) {
+            results.add(result);
+        }
+
+        void failure(Throwable error) {
+            failures.put(results.size(), error);
+            results.add(null);
+        }
+
+        BatchResult<O> build() {
+            return new BatchResult<>(Collections.unmodifiableList(results), Collections.unmodifiableMap(failures));
+        }
+    }
+}
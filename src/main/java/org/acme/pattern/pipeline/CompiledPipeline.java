@@ -0,0 +1,174 @@
+package org.acme.pattern.pipeline;
+
+import jakarta.transaction.Transactional;
+import org.acme.pattern.Handler;
+import org.acme.pattern.checkpoint.Checkpoint;
+import org.acme.pattern.checkpoint.CheckpointJournal;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationLog;
+import org.acme.pattern.context.BaseTransactionContext;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompiledPipeline<I, O> {
+    private static final int DEFAULT_MAX_PENDING = 1024;
+
+    private final Handler<Object, Object>[] stages;
+    private final BaseTransactionContext baseContext;
+    private final CompensationEngine compensationEngine;
+    // Null unless checkpointing is on
+    private final CheckpointJournal journal;
+    private final CompensationLog compensationLog;
+    // Contexts of the checkpointed executions that failed and may be retried or abandoned, oldest
+    // failure first. Guarded by itself.
+    private final Map<String, BaseTransactionContext> pending = new LinkedHashMap<>();
+    // Past this many failed executions waiting for a retry, the oldest one is abandoned
+    private final int maxPending;
+
+    @SuppressWarnings("unchecked")
+    CompiledPipeline(List<Handler<?, ?>> stages, BaseTransactionContext baseContext,
+                     CompensationEngine compensationEngine, CompensationLog compensationLog) {
+        this(stages.toArray(new Handler[0]), baseContext, compensationEngine, compensationLog, null, DEFAULT_MAX_PENDING);
+    }
+
+    private CompiledPipeline(Handler<Object, Object>[] stages, BaseTransactionContext baseContext,
+                             CompensationEngine compensationEngine, CompensationLog compensationLog,
+                             CheckpointJournal journal, int maxPending) {
+        this.stages = stages;
+        this.baseContext = baseContext;
+        this.compensationEngine = compensationEngine;
+        this.compensationLog = compensationLog;
+        this.journal = journal;
+        this.maxPending = maxPending;
+    }
+
+    // Records every stage's output in the journal, see execute(String, I)
+    public CompiledPipeline<I, O> withCheckpoints(CheckpointJournal journal) {
+        return withCheckpoints(journal, DEFAULT_MAX_PENDING);
+    }
+
+    // maxPending: failed executions kept for a retry; past it the oldest is abandoned with its error
+    public CompiledPipeline<I, O> withCheckpoints(CheckpointJournal journal, int maxPending) {
+        if (maxPending < 0) {
+            throw new IllegalArgumentException("maxPending must not be negative: " + maxPending);
+        }
+        return new CompiledPipeline<>(stages, baseContext, compensationEngine, compensationLog, journal, maxPending);
+    }
+
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public O execute(I input) {
+        // Own context per execution, as in Pipeline.execute
+        BaseTransactionContext context = baseContext.forkExecution();
+        String executionId = Pipeline.beginLogged(context, compensationLog);
+        try {
+            Object result = input;
+            // One loop over the flat stage array: no nested wrappers and no per-stage allocation.
+            // Each stage records its metrics and the intermediate result itself.
+            for (Handler<Object, Object> stage : stages) {
+                result = stage.process(result, context);
+            }
+            Pipeline.commitLogged(compensationLog, executionId);
+            baseContext.setIntermediateResult(result);
+            return (O) result;
+        } catch (Exception e) {
+            Pipeline.failed(baseContext, context, e, compensationEngine, executionId);
+            throw e;
+        }
+    }
+
+    // Checkpointed execution: a retry with the same executionId skips the stages that already
+    // completed and starts from the last recorded output. A failure keeps the checkpoints and does
+    // not compensate, since the retry builds on the completed stages; abandon() undoes them instead.
+    // The failed execution's context is kept until then, so a retry adds to its compensations. Only
+    // maxPending of them are kept: a caller that neither retries nor abandons gets its oldest failed
+    // executions abandoned for it.
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public O execute(String executionId, I input) {
+        if (journal == null) {
+            throw new IllegalStateException("Checkpointing is off, use withCheckpoints(journal)");
+        }
+        BaseTransactionContext context;
+        synchronized (pending) {
+            context = pending.remove(executionId);
+        }
+        if (context == null) {
+            context = baseContext.forkExecution();
+        }
+        context.setExecutionId(executionId);
+        Checkpoint checkpoint = journal.latest(executionId);
+        int start = 0;
+        Object result = input;
+        if (checkpoint != null) {
+            start = checkpoint.getStage() + 1;
+            result = checkpoint.getResult();
+            context.setIntermediateResult(result);
+            context.logStep("Resumed " + executionId + " after stage " + checkpoint.getStage());
+        }
+        try {
+            for (int i = start; i < stages.length; i++) {
+                result = stages[i].process(result, context);
+                journal.record(executionId, i, result);
+            }
+        } catch (Exception e) {
+            context.setError(e);
+            baseContext.setError(e);
+            keep(executionId, context);
+            throw e;
+        }
+        journal.complete(executionId);
+        baseContext.setIntermediateResult(result);
+        return (O) result;
+    }
+
+    // Gives up on a failed checkpointed execution: compensates and drops its checkpoints. After a
+    // restart the execution's own compensations are gone, only the pipeline-wide ones run.
+    public void abandon(String executionId, Exception cause) {
+        BaseTransactionContext context;
+        synchronized (pending) {
+            context = pending.remove(executionId);
+        }
+        if (context == null) {
+            context = baseContext.forkExecution();
+            context.setExecutionId(executionId);
+        }
+        abandon(executionId, context, cause);
+    }
+
+    private void abandon(String executionId, BaseTransactionContext context, Exception cause) {
+        Pipeline.failed(baseContext, context, cause, compensationEngine, executionId);
+        if (journal != null) {
+            journal.complete(executionId);
+        }
+    }
+
+    private void keep(String executionId, BaseTransactionContext context) {
+        Map.Entry<String, BaseTransactionContext> evicted = null;
+        synchronized (pending) {
+            pending.put(executionId, context);
+            if (pending.size() > maxPending) {
+                Iterator<Map.Entry<String, BaseTransactionContext>> oldest = pending.entrySet().iterator();
+                evicted = oldest.next();
+                oldest.remove();
+            }
+        }
+        if (evicted != null) {
+            abandon(evicted.getKey(), evicted.getValue(), evicted.getValue().getError());
+        }
+    }
+
+    // Failed checkpointed executions waiting for a retry or abandon()
+    public int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public int size() {
+        return stages.length;
+    }
+}
@@ -0,0 +1,270 @@
+package org.acme.pattern.pipeline;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.compensation.Compensation;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationReport;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.events.StepEvent;
+import org.acme.pattern.events.StepEventSink;
+import org.acme.pattern.handlers.LoggingHandlerWrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Pipeline shaped as a graph: every stage reads named values and writes one named output into the
+// context, and starts as soon as the stages producing its inputs are done. Independent branches run
+// concurrently on the executor.
+// Each stage gets its own child context at build time, holding what its handler registers in
+// setContext. Every execution forks a fresh context per stage from it, so the rollbacks can be told
+// apart by stage and by execution: on failure only the stages of that execution that started are
+// compensated, in reverse start order. The pipeline's context only receives the outcome of the
+// last execution: its input and outputs, or its error and compensation report.
+public class DagPipeline<I> {
+    // Name under which the value passed to execute() is visible to the stages
+    public static final String INPUT = "input";
+
+    private static final Executor VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final List<Node> nodes;
+    private final BaseTransactionContext baseContext;
+    private final Executor executor;
+    private final CompensationEngine compensationEngine;
+
+    private DagPipeline(Builder<I> builder, List<Node> nodes) {
+        this.nodes = nodes;
+        this.baseContext = builder.baseContext;
+        this.executor = builder.executor;
+        this.compensationEngine = builder.compensationEngine;
+    }
+
+    public static <I> Builder<I> builder(BaseTransactionContext baseContext) {
+        return new Builder<>(baseContext);
+    }
+
+    private interface Body {
+        CompletionStage<Object> run(Object argument, BaseTransactionContext context, Executor executor);
+    }
+
+    private record Node(String output, List<String> inputs, BaseTransactionContext context, Body body) {
+        // A single input is passed as is, several as a map by name in declaration order
+        Object argument(Map<String, CompletableFuture<Object>> done) {
+            if (inputs.size() == 1) {
+                return done.get(inputs.get(0)).join();
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String input : inputs) {
+                values.put(input, done.get(input).join());
+            }
+            return values;
+        }
+    }
+
+    // Thrown by the stages that were not started because another one had already failed
+    private static final class Skipped extends RuntimeException {
+        Skipped() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Completes with every stage output by name, or fails with the first stage failure once the
+    // started stages are done and compensated
+    public CompletableFuture<Map<String, Object>> execute(I input) {
+        BaseTransactionContext execution = baseContext.forkExecution();
+        execution.put(INPUT, input);
+        Map<String, CompletableFuture<Object>> done = new HashMap<>();
+        done.put(INPUT, CompletableFuture.completedFuture(input));
+        List<BaseTransactionContext> started = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (Node node : nodes) {
+            CompletableFuture<?>[] dependencies = node.inputs().stream().map(done::get).toArray(CompletableFuture[]::new);
+            CompletableFuture<Object> result = CompletableFuture.allOf(dependencies).thenComposeAsync(ignored -> {
+                if (failure.get() != null) {
+                    return CompletableFuture.failedFuture(new Skipped());
+                }
+                BaseTransactionContext context = node.context().forkExecution();
+                started.add(context);
+                CompletionStage<Object> stage;
+                try {
+                    stage = node.body().run(node.argument(done), context, executor);
+                } catch (RuntimeException e) {
+                    // A handler that throws instead of returning a failed Uni fails its stage the same way
+                    stage = CompletableFuture.failedFuture(e);
+                }
+                return stage
+                        .whenComplete((value, error) -> {
+                            if (error == null) {
+                                execution.put(node.output(), value);
+                                execution.logStep("Stage " + node.output() + " completed");
+                            } else {
+                                failure.compareAndSet(null, error instanceof CompletionException ? error.getCause() : error);
+                            }
+                        });
+            }, executor);
+            done.put(node.output(), result);
+        }
+
+        return CompletableFuture.allOf(done.values().toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> failure.get())
+                .thenCompose(error -> {
+                    if (error == null) {
+                        Map<String, Object> outputs = new LinkedHashMap<>();
+                        for (Node node : nodes) {
+                            outputs.put(node.output(), done.get(node.output()).join());
+                        }
+                        baseContext.put(INPUT, input);
+                        outputs.forEach(baseContext::put);
+                        return CompletableFuture.completedFuture(outputs);
+                    }
+                    return compensate(error, execution, List.copyOf(started))
+                            .thenCompose(report -> CompletableFuture.failedFuture(error));
+                });
+    }
+
+    private CompletableFuture<CompensationReport> compensate(Throwable error, BaseTransactionContext execution,
+                                                             List<BaseTransactionContext> started) {
+        Exception exception = error instanceof Exception ? (Exception) error : new RuntimeException(error);
+        execution.setError(exception);
+        baseContext.setError(exception);
+        StepEventSink events = execution.getStepEventSink();
+        if (events.isEnabled()) {
+            events.publish(StepEvent.of(StepEvent.Type.PIPELINE_FAILED, null, null, error));
+        }
+        // Default ordering runs them in reverse registration order, i.e. reverse start order
+        List<Compensation> compensations = new ArrayList<>();
+        for (BaseTransactionContext context : started) {
+            compensations.addAll(context.getCompensations());
+        }
+        CompletableFuture<CompensationReport> report = compensationEngine.compensate(compensations, events);
+        execution.put(CompensationEngine.REPORT, report);
+        baseContext.put(CompensationEngine.REPORT, report);
+        return compensationEngine.isAsync() ? CompletableFuture.completedFuture(null) : report;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public static class Builder<I> {
+        private final BaseTransactionContext baseContext;
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private Executor executor = VIRTUAL_THREADS;
+        private CompensationEngine compensationEngine = CompensationEngine.defaults();
+
+        private Builder(BaseTransactionContext baseContext) {
+            this.baseContext = baseContext;
+        }
+
+        public Builder<I> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder<I> compensationEngine(CompensationEngine compensationEngine) {
+            this.compensationEngine = compensationEngine;
+            return this;
+        }
+
+        // Blocking stage, run on the executor
+        @SuppressWarnings("unchecked")
+        public <A, O> Builder<I> stage(String output, String input, Handler<A, O> handler) {
+            return handlerStage(output, List.of(input), (Handler<Object, Object>) handler);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <O> Builder<I> stage(String output, List<String> inputs, Handler<Map<String, Object>, O> handler) {
+            return handlerStage(output, inputs, (Handler<Object, Object>) (Handler<?, ?>) handler);
+        }
+
+        // Reactive stage, subscribed on the executor. Named apart from stage(...) so that a lambda
+        // picks one overload without a cast.
+        @SuppressWarnings("unchecked")
+        public <A, O> Builder<I> asyncStage(String output, String input, MutinyHandler<A, O> handler) {
+            return mutinyStage(output, List.of(input), (MutinyHandler<Object, Object>) handler);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <O> Builder<I> asyncStage(String output, List<String> inputs, MutinyHandler<Map<String, Object>, O> handler) {
+            return mutinyStage(output, inputs, (MutinyHandler<Object, Object>) (MutinyHandler<?, ?>) handler);
+        }
+
+        private Builder<I> handlerStage(String output, List<String> inputs, Handler<Object, Object> handler) {
+            BaseTransactionContext context = baseContext.fork();
+            Handler<Object, Object> stage = new LoggingHandlerWrapper<>(handler, context, output);
+            return add(new Node(output, List.copyOf(inputs), context,
+                    (argument, nodeContext, executor) ->
+                            CompletableFuture.supplyAsync(() -> stage.process(argument, nodeContext), executor)));
+        }
+
+        private Builder<I> mutinyStage(String output, List<String> inputs, MutinyHandler<Object, Object> handler) {
+            BaseTransactionContext context = baseContext.fork();
+            MutinyHandler<Object, Object> stage = LoggingHandlerWrapper.mutiny(handler, output);
+            return add(new Node(output, List.copyOf(inputs), context,
+                    (argument, nodeContext, executor) -> stage.process(argument, nodeContext)
+                            .runSubscriptionOn(executor)
+                            .subscribeAsCompletionStage()));
+        }
+
+        private Builder<I> add(Node node) {
+            if (node.inputs().isEmpty()) {
+                throw new IllegalArgumentException("Stage " + node.output() + " has no inputs, use " + INPUT);
+            }
+            if (INPUT.equals(node.output()) || nodes.putIfAbsent(node.output(), node) != null) {
+                throw new IllegalArgumentException("Duplicate output name: " + node.output());
+            }
+            return this;
+        }
+
+        // Checks that every input is produced by some stage and orders the stages topologically
+        public DagPipeline<I> build() {
+            Map<String, Integer> pending = new HashMap<>();
+            Map<String, List<Node>> consumers = new HashMap<>();
+            Deque<Node> ready = new ArrayDeque<>();
+            for (Node node : nodes.values()) {
+                int waiting = 0;
+                for (String input : node.inputs()) {
+                    if (!INPUT.equals(input) && !nodes.containsKey(input)) {
+                        throw new IllegalArgumentException("Stage " + node.output() + " reads unknown value " + input);
+                    }
+                    if (!INPUT.equals(input)) {
+                        consumers.computeIfAbsent(input, name -> new ArrayList<>()).add(node);
+                        waiting++;
+                    }
+                }
+                pending.put(node.output(), waiting);
+                if (waiting == 0) {
+                    ready.add(node);
+                }
+            }
+            List<Node> order = new ArrayList<>(nodes.size());
+            while (!ready.isEmpty()) {
+                Node node = ready.poll();
+                order.add(node);
+                for (Node consumer : consumers.getOrDefault(node.output(), List.of())) {
+                    if (pending.merge(consumer.output(), -1, Integer::sum) == 0) {
+                        ready.add(consumer);
+                    }
+                }
+            }
+            if (order.size() != nodes.size()) {
+                throw new IllegalArgumentException("Stages form a cycle: " + nodes.keySet().stream()
+                        .filter(name -> pending.get(name) > 0).toList());
+            }
+            return new DagPipeline<>(this, List.copyOf(order));
+        }
+    }
+}
@@ -1,41 +1,270 @@
 package org.acme.pattern.pipeline;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.transaction.Transactional;
-import lombok.AllArgsConstructor;
+import org.acme.pattern.cache.StageCache;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationReport;
 import org.acme.pattern.context.BaseTransactionContext;
 import org.acme.pattern.MutinyHandler;
-import org.acme.pattern.context.TypedPipelineContext;
+import org.acme.pattern.context.ContextPool;
+import org.acme.pattern.events.StepEvent;
+import org.acme.pattern.events.StepEventSink;
+import org.acme.pattern.handlers.AdaptiveLimitHandler;
+import org.acme.pattern.handlers.BatchingMutinyHandler;
+import org.acme.pattern.handlers.CachingHandler;
+import org.acme.pattern.handlers.HedgingHandler;
+import org.acme.pattern.handlers.LoggingHandlerWrapper;
+import org.acme.pattern.limit.AdaptiveLimiter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
-@AllArgsConstructor
 public class MutinyPipeline<I, O> {
-    private final MutinyHandler<I, O> currentHandler;
+    private static final int DEFAULT_POOL_CAPACITY = 256;
+
+    // Immutable definition: the stages in order, shared by every execution
+    private final MutinyHandler<Object, Object>[] stages;
+    // Legacy mode: every execution writes into this one context. Null when contexts are pooled.
     private final BaseTransactionContext baseContext;
+    private final ContextPool contextPool;
+
+    public MutinyPipeline(MutinyHandler<I, O> currentHandler, BaseTransactionContext baseContext) {
+        this(firstStage(currentHandler), baseContext, null);
+    }
+
+    // Shareable pipeline: each execution gets its own context, recycled through the pool
+    public MutinyPipeline(MutinyHandler<I, O> currentHandler) {
+        this(currentHandler, new ContextPool(DEFAULT_POOL_CAPACITY));
+    }
+
+    public MutinyPipeline(MutinyHandler<I, O> currentHandler, ContextPool contextPool) {
+        this(firstStage(currentHandler), null, contextPool);
+    }
+
+    private MutinyPipeline(MutinyHandler<Object, Object>[] stages, BaseTransactionContext baseContext, ContextPool contextPool) {
+        this.stages = stages;
+        this.baseContext = baseContext;
+        this.contextPool = contextPool;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MutinyHandler<Object, Object>[] firstStage(MutinyHandler<?, ?> handler) {
+        return new MutinyHandler[]{handler};
+    }
 
 
+    @SuppressWarnings("unchecked")
     public <K> MutinyPipeline<I, K> addHandler(MutinyHandler<O, K> newHandler) {
-        MutinyHandler<I, K> combinedHandler = input ->
-                currentHandler.process(input)
-                        .invoke(intermediateResult ->
-                                new TypedPipelineContext<>(baseContext).setResult(intermediateResult))
-                        .flatMap(newHandler::process);
-        return new MutinyPipeline<>(combinedHandler, baseContext);
+        MutinyHandler<Object, Object>[] nextStages = Arrays.copyOf(stages, stages.length + 1);
+        nextStages[stages.length] = (MutinyHandler<Object, Object>) newHandler;
+        return new MutinyPipeline<>(nextStages, baseContext, contextPool);
     }
 
+    // Named stage with its own latency histogram and success/failure counters
+    public <K> MutinyPipeline<I, K> addHandler(String stageName, MutinyHandler<O, K> newHandler) {
+        return addHandler(LoggingHandlerWrapper.mutiny(newHandler, stageName));
+    }
+
+    // Memoized stage for handlers that are pure functions of their input
+    public <K> MutinyPipeline<I, K> addCachedHandler(MutinyHandler<O, K> newHandler, StageCache<O, K> cache) {
+        return addHandler(CachingHandler.mutiny(newHandler, cache));
+    }
+
+    // Stage whose concurrency adapts to its latency, see AdaptiveLimiter; the stage takes the limiter's name
+    public <K> MutinyPipeline<I, K> addLimitedHandler(MutinyHandler<O, K> newHandler, AdaptiveLimiter limiter) {
+        return addHandler(limiter.getStage(), AdaptiveLimitHandler.mutiny(newHandler, limiter));
+    }
+
+    // Stage that calls a bulk handler once per window of concurrent executions, see BatchingMutinyHandler
+    public <K> MutinyPipeline<I, K> addBatchedHandler(MutinyHandler<List<O>, List<K>> bulkHandler,
+                                                      int maxBatchSize, Duration maxDelay) {
+        return addHandler(new BatchingMutinyHandler<>(bulkHandler, maxBatchSize, maxDelay));
+    }
+
+    // Stage with a timeout and hedged attempts, see HedgingHandler; the stage takes the handler's name
+    public <K> MutinyPipeline<I, K> addHedgedHandler(HedgingHandler<O, K> newHandler) {
+        return addHandler(newHandler.getStage(), newHandler);
+    }
 
     @Transactional
     public Uni<O> execute(I input) {
-        return currentHandler.process(input)
-                .onItem().transformToUni(o -> {
-                    TypedPipelineContext<O> typedContext = new TypedPipelineContext<>(baseContext);
-                    typedContext.setResult(o);
-                    System.out.println("Executing pipeline on thread: " + Thread.currentThread().getName());
-                    return Uni.createFrom().item(o);
+        if (contextPool == null) {
+            return execute(input, baseContext);
+        }
+        return Uni.createFrom().deferred(() -> {
+            BaseTransactionContext context = contextPool.acquire();
+            // Not on cancellation: the stage may still be running and writing to the context, which
+            // is then left to the garbage collector
+            return execute(input, context)
+                    .onItemOrFailure().invoke((output, failure) -> contextPool.release(context));
+        });
+    }
+
+    // Runs one execution against a context owned by the caller
+    @Transactional
+    public Uni<O> execute(I input, BaseTransactionContext context) {
+        return run(input, context)
+                .onItem().invoke(o -> {
+                    StepEventSink events = context.getStepEventSink();
+                    if (events.isEnabled()) {
+                        events.publish(StepEvent.of(StepEvent.Type.PIPELINE_COMPLETED, null, null, null));
+                    }
                 })
                 .onFailure().invoke(e -> {
-                    baseContext.setError((Exception) e);
-                    System.out.println("Pipeline error on thread: " + Thread.currentThread().getName());
+                    context.setError(asException(e));
+                    StepEventSink events = context.getStepEventSink();
+                    if (events.isEnabled()) {
+                        events.publish(StepEvent.of(StepEvent.Type.PIPELINE_FAILED, null, null, e));
+                    }
                 });
     }
 
+    // Chains the stages directly: the intermediate result goes into the context, no wrapper objects.
+    // The context is handed to each stage instead of being stored in the Mutiny subscription context,
+    // which is a single object shared by every execution merged into the same subscriber.
+    @SuppressWarnings("unchecked")
+    private Uni<O> run(I input, BaseTransactionContext context) {
+        Uni<Object> result = stages[0].process(input, context);
+        for (int i = 1; i < stages.length; i++) {
+            MutinyHandler<Object, Object> stage = stages[i];
+            result = result.onItem().transformToUni(o -> {
+                context.setIntermediateResult(o);
+                return stage.process(o, context);
+            });
+        }
+        return (Uni<O>) result.invoke(context::setIntermediateResult);
+    }
+
+    @Transactional
+    public Uni<BatchResult<O>> executeBatch(Multi<I> inputs) {
+        return executeBatch(inputs, BatchMode.ALL_OR_NOTHING);
+    }
+
+    // Items are processed one after another, each on a fork of a single context, so it sees them in
+    // input order. In PER_ITEM mode a failed item's own rollbacks run before the next item starts;
+    // successful items are merged back into the batch's context.
+    @Transactional
+    public Uni<BatchResult<O>> executeBatch(Multi<I> inputs, BatchMode mode) {
+        return Uni.createFrom().deferred(() -> {
+            BaseTransactionContext context = contextPool == null ? baseContext : contextPool.acquire();
+            BatchResult.Accumulator<O> batch = BatchResult.accumulator(16);
+            Uni<BatchResult<O>> result = inputs.onItem().transformToUniAndConcatenate(input -> {
+                        BaseTransactionContext fork = context.fork();
+                        Uni<O> item = run(input, fork).invoke(output -> {
+                            context.merge(fork);
+                            batch.success(output);
+                        });
+                        if (mode == BatchMode.PER_ITEM) {
+                            item = item.onFailure().call(e -> {
+                                        fork.setError(asException(e));
+                                        CompletableFuture<CompensationReport> report = CompensationEngine.defaults()
+                                                .compensate(fork.getCompensations(), fork.getStepEventSink());
+                                        fork.put(CompensationEngine.REPORT, report);
+                                        return Uni.createFrom().completionStage(report);
+                                    })
+                                    .onFailure().recoverWithItem(e -> {
+                                        context.setError(asException(e));
+                                        batch.failure(e);
+                                        return null;
+                                    });
+                        } else {
+                            item = item.onFailure().invoke(() -> context.merge(fork));
+                        }
+                        return item.replaceWithVoid();
+                    })
+                    .onItem().ignoreAsUni()
+                    .onFailure().invoke(e -> context.setError(asException(e)))
+                    .onItem().transform(ignored -> batch.build());
+            return contextPool == null
+                    ? result
+                    : result.onTermination().invoke(() -> contextPool.release(context));
+        });
+    }
+
+    public Multi<O> stream(Multi<I> inputs, int concurrency) {
+        return stream(inputs, concurrency, StreamOrder.ORDERED);
+    }
+
+    // Runs every stage over the stream with at most `concurrency` items in flight per stage.
+    // Demand only flows upstream as items are emitted, so a slow stage throttles the ones before it
+    // instead of buffering. Each item carries its own context through the stages, a pooled one or
+    // the shared one in legacy mode. A pooled context goes back once its item is emitted or fails;
+    // items cancelled with the stream keep theirs, a stage may still be writing to it.
+    @SuppressWarnings("unchecked")
+    public Multi<O> stream(Multi<I> inputs, int concurrency, StreamOrder order) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        Multi<Item> stream = inputs.onItem().transform(input ->
+                new Item(input, contextPool == null ? baseContext : contextPool.acquire()));
+        for (MutinyHandler<Object, Object> handler : stages) {
+            stream = order == StreamOrder.UNORDERED
+                    ? stream.onItem().transformToUni(item -> item.through(handler, contextPool)).merge(concurrency)
+                    : orderedStage(stream, handler, concurrency, contextPool);
+        }
+        return stream
+                .onItem().transform(item -> {
+                    if (contextPool != null) {
+                        contextPool.release(item.context);
+                    }
+                    return (O) item.value;
+                })
+                .onFailure().invoke(e -> {
+                    if (baseContext != null) {
+                        baseContext.setError(asException(e));
+                    }
+                });
+    }
+
+    private record Item(Object value, BaseTransactionContext context) {
+        // pool: where the context goes back if the stage fails, null in legacy mode
+        Uni<Item> through(MutinyHandler<Object, Object> handler, ContextPool pool) {
+            Uni<Item> next = handler.process(value, context).onItem().transform(output -> {
+                context.setIntermediateResult(output);
+                return new Item(output, context);
+            });
+            return pool == null ? next : next.onFailure().invoke(() -> pool.release(context));
+        }
+    }
+
+    private record Turn(Item item, CompletableFuture<Void> emitted) {
+    }
+
+    // Every item starts as soon as a slot is free, but hands its result on only once the item before
+    // it has been emitted downstream. It keeps its slot until then, so results waiting on a slower
+    // item count against the concurrency and the stage never holds more than that.
+    private static Multi<Item> orderedStage(Multi<Item> stream, MutinyHandler<Object, Object> handler, int concurrency,
+                                            ContextPool pool) {
+        if (concurrency == 1) {
+            return stream.onItem().transformToUniAndConcatenate(item -> item.through(handler, pool));
+        }
+        return Multi.createFrom().deferred(() -> {
+            // Upstream items arrive one at a time, each one takes the turn of the previous
+            AtomicReference<CompletableFuture<Void>> last = new AtomicReference<>(CompletableFuture.completedFuture(null));
+            return stream
+                    .onItem().transformToUni(item -> {
+                        CompletableFuture<Void> previous = last.get();
+                        CompletableFuture<Void> emitted = new CompletableFuture<>();
+                        last.set(emitted);
+                        return item.through(handler, pool)
+                                .onItem().call(() -> Uni.createFrom().completionStage(previous.copy()))
+                                .onItem().transform(next -> new Turn(next, emitted));
+                    })
+                    .merge(concurrency)
+                    .onItem().transform(turn -> {
+                        turn.emitted().complete(null);
+                        return turn.item();
+                    });
+        });
+    }
+
+    private static Exception asException(Throwable e) {
+        return e instanceof Exception ? (Exception) e : new RuntimeException(e);
+    }
+
 }
@@ -3,51 +3,255 @@ package org.acme.pattern.pipeline;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.acme.pattern.Handler;
-import org.acme.pattern.RollbackCallback;
+import org.acme.pattern.cache.StageCache;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationLog;
+import org.acme.pattern.compensation.CompensationReport;
 import org.acme.pattern.context.BaseTransactionContext;
 import org.acme.pattern.context.TypedPipelineContext;
+import org.acme.pattern.events.StepEvent;
+import org.acme.pattern.events.StepEventSink;
+import org.acme.pattern.handlers.AdaptiveLimitHandler;
+import org.acme.pattern.handlers.BoundedHandler;
+import org.acme.pattern.handlers.CachingHandler;
+import org.acme.pattern.handlers.ForkJoinHandler;
 import org.acme.pattern.handlers.LoggingHandlerWrapper;
+import org.acme.pattern.limit.AdaptiveLimiter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Each execution runs on its own context, forked from the pipeline's one with the compensations
+// registered on it up front, and stages get it through Handler.process(input, context). What an
+// execution registers is dropped with it; the pipeline's context only receives the outcome of the
+// last execution: its result, or its error and compensation report.
 public class Pipeline<I, O> {
+    private static final String DEFAULT_NAME = "pipeline";
 
     private final BaseTransactionContext baseContext;
 
+    // Prefix of the positional stage names
+    private final String name;
+
     private final Handler<I, O> currentHandler;
 
+    // Raw handlers in the order they were added, kept so build() can flatten the chain
+    private final List<Handler<?, ?>> stages;
+
+    private final CompensationEngine compensationEngine;
+
+    // Null unless compensation intents are written ahead to a log
+    private final CompensationLog compensationLog;
+
     public Pipeline(Handler<I, O> currentHandler, BaseTransactionContext baseContext) {
+        this(DEFAULT_NAME, currentHandler, baseContext, 0);
+    }
+
+    public Pipeline(String stageName, Handler<I, O> currentHandler, BaseTransactionContext baseContext) {
+        this(DEFAULT_NAME, stageName, currentHandler, baseContext);
+    }
+
+    // Without a name the lambda stages are measured together with those of every unnamed pipeline
+    public static <I, O> Pipeline<I, O> named(String name, Handler<I, O> currentHandler, BaseTransactionContext baseContext) {
+        return new Pipeline<>(name, currentHandler, baseContext, 0);
+    }
+
+    private Pipeline(String name, Handler<I, O> currentHandler, BaseTransactionContext baseContext, int position) {
+        this(name, LoggingHandlerWrapper.stageName(currentHandler, name, position), currentHandler, baseContext);
+    }
+
+    private Pipeline(String name, String stageName, Handler<I, O> currentHandler, BaseTransactionContext baseContext) {
+        this.name = name;
+        this.baseContext = baseContext;
+        this.currentHandler = new LoggingHandlerWrapper<>(currentHandler, baseContext, stageName);
+        this.stages = List.of(this.currentHandler);
+        this.compensationEngine = CompensationEngine.defaults();
+        this.compensationLog = null;
+    }
+
+    private Pipeline(String name, Handler<I, O> chain, BaseTransactionContext baseContext, List<Handler<?, ?>> stages,
+                     CompensationEngine compensationEngine, CompensationLog compensationLog) {
+        this.name = name;
         this.baseContext = baseContext;
-        this.currentHandler = new LoggingHandlerWrapper<>(currentHandler, baseContext);
+        this.currentHandler = chain;
+        this.stages = stages;
+        this.compensationEngine = compensationEngine;
+        this.compensationLog = compensationLog;
+    }
+
+    // Sets how the registered rollbacks run on failure: parallelism, timeouts and whether the caller waits
+    public Pipeline<I, O> withCompensationEngine(CompensationEngine compensationEngine) {
+        return new Pipeline<>(name, currentHandler, baseContext, stages, compensationEngine, compensationLog);
+    }
+
+    // Writes the intent of each durable compensation before its stage applies the effect, so a crash
+    // mid-pipeline is compensated by CompensationLog.recover() on the next start
+    public Pipeline<I, O> withCompensationLog(CompensationLog compensationLog) {
+        return new Pipeline<>(name, currentHandler, baseContext, stages, compensationEngine, compensationLog);
     }
 
     public <K> Pipeline<I, K> addHandler(Handler<O, K> newHandler) {
-        newHandler.setContext(baseContext);
-        return new Pipeline<>(input -> {
-            TypedPipelineContext<O> typedContext = new TypedPipelineContext<>(baseContext);
-            O intermediateResult = currentHandler.process(input);
-            typedContext.setResult(intermediateResult);
-            return newHandler.process(intermediateResult);
-        }, this.baseContext);
+        return addHandler(LoggingHandlerWrapper.stageName(newHandler, name, stages.size()), newHandler);
+    }
+
+    // Every stage is wrapped once, here, so it gets its own latency histogram and counters
+    public <K> Pipeline<I, K> addHandler(String stageName, Handler<O, K> newHandler) {
+        LoggingHandlerWrapper<O, K> stage = new LoggingHandlerWrapper<>(newHandler, baseContext, stageName);
+        List<Handler<?, ?>> nextStages = new ArrayList<>(stages.size() + 1);
+        nextStages.addAll(stages);
+        nextStages.add(stage);
+        return new Pipeline<>(name, chain(currentHandler, stage),
+                this.baseContext, Collections.unmodifiableList(nextStages),
+                compensationEngine, compensationLog);
+    }
+
+    // Passes the execution context along the chain
+    private static <I, O, K> Handler<I, K> chain(Handler<I, O> previous, Handler<O, K> stage) {
+        return new Handler<>() {
+            @Override
+            public K process(I input) {
+                return stage.process(previous.process(input));
+            }
+
+            @Override
+            public K process(I input, BaseTransactionContext context) {
+                return stage.process(previous.process(input, context), context);
+            }
+        };
+    }
+
+    // Fan-out/fan-in stage: splits the intermediate result, runs one handler per part on the
+    // ForkJoinPool and merges the outputs back into the chain.
+    public <P, Q, K> Pipeline<I, K> addForkJoinHandler(Function<O, List<P>> splitter,
+                                                        Supplier<? extends Handler<P, Q>> partHandler,
+                                                        Function<List<Q>, K> merger) {
+        return addHandler(LoggingHandlerWrapper.stageName(name, stages.size()),
+                new ForkJoinHandler<>(splitter, partHandler, merger));
+    }
+
+    // Memoized stage for handlers that are pure functions of their input
+    public <K> Pipeline<I, K> addCachedHandler(Handler<O, K> newHandler, StageCache<O, K> cache) {
+        return addHandler(LoggingHandlerWrapper.stageName(newHandler, name, stages.size()),
+                new CachingHandler<>(newHandler, cache));
+    }
+
+    // Stage whose concurrency adapts to its latency, see AdaptiveLimiter; the stage takes the limiter's name
+    public <K> Pipeline<I, K> addLimitedHandler(Handler<O, K> newHandler, AdaptiveLimiter limiter) {
+        return addHandler(limiter.getStage(), new AdaptiveLimitHandler<>(newHandler, limiter));
+    }
+
+    // Blocking stage (e.g. a DatabaseHandler) with at most maxConcurrency executions inside it,
+    // meant to be run through VirtualThreadPipelineExecutor.
+    public <K> Pipeline<I, K> addBlockingHandler(Handler<O, K> newHandler, int maxConcurrency) {
+        return addHandler(LoggingHandlerWrapper.stageName(newHandler, name, stages.size()),
+                new BoundedHandler<>(newHandler, maxConcurrency));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Freezes the chain into a flat array of stages executed by a single loop. The stages are the
+    // already-built wrappers, so handlers do not receive the context a second time.
+    public CompiledPipeline<I, O> build() {
+        return new CompiledPipeline<>(stages, baseContext, compensationEngine, compensationLog);
     }
 
     @Transactional
     public O execute(I input) {
+        BaseTransactionContext context = baseContext.forkExecution();
+        String executionId = beginLogged(context, compensationLog);
         try {
-            TypedPipelineContext<O> typedContext = new TypedPipelineContext<>(baseContext);
-            O result = currentHandler.process(input);
-            typedContext.setResult(result);
+            O result = currentHandler.process(input, context);
+            commitLogged(compensationLog, executionId);
+            new TypedPipelineContext<O>(baseContext).setResult(result);
             return result;
         } catch (Exception e) {
-            baseContext.setError(e);
-            baseContext.getExecutedSteps().forEach(System.err::println);
-            // Invoke all registered rollback callbacks
-            for (RollbackCallback callback : baseContext.getRollbackCallbacks()) {
-                try {
-                    callback.rollback();
-                } catch (Exception rollbackEx) {
-                    System.err.println("Rollback callback failed: " + rollbackEx.getMessage());
+            failed(baseContext, context, e, compensationEngine, executionId);
+            throw e;
+        }
+    }
+
+    @Transactional
+    public BatchResult<O> executeBatch(List<I> inputs) {
+        return executeBatch(inputs, BatchMode.ALL_OR_NOTHING);
+    }
+
+    // Runs the whole batch under one transaction and one execution context, results come back in
+    // input order. Each item runs on a fork of it: a failed item compensates only what it registered
+    // itself, a successful one is merged back so ALL_OR_NOTHING still sees every item's rollbacks.
+    @Transactional
+    public BatchResult<O> executeBatch(List<I> inputs, BatchMode mode) {
+        BaseTransactionContext context = baseContext.forkExecution();
+        BatchResult.Accumulator<O> batch = BatchResult.accumulator(inputs.size());
+        for (I input : inputs) {
+            BaseTransactionContext item = context.fork();
+            try {
+                batch.success(currentHandler.process(input, item));
+                context.merge(item);
+            } catch (Exception e) {
+                if (mode == BatchMode.ALL_OR_NOTHING) {
+                    context.merge(item);
+                    failed(baseContext, context, e, compensationEngine, null);
+                    throw e;
                 }
+                rollback(item, e, compensationEngine, null);
+                context.setError(e);
+                baseContext.setError(e);
+                batch.failure(e);
             }
-            throw e;
+        }
+        return batch.build();
+    }
+
+    // Compensates a failed execution and reports it on the pipeline's context
+    static void failed(BaseTransactionContext pipelineContext, BaseTransactionContext context, Exception e,
+                       CompensationEngine compensationEngine, String executionId) {
+        rollback(context, e, compensationEngine, executionId);
+        pipelineContext.setError(e);
+        pipelineContext.put(CompensationEngine.REPORT, context.get(CompensationEngine.REPORT));
+    }
+
+    // executionId: the logged execution to mark compensated once every compensation ran, or null
+    static void rollback(BaseTransactionContext context, Exception e, CompensationEngine compensationEngine,
+                         String executionId) {
+        context.setError(e);
+        StepEventSink events = context.getStepEventSink();
+        if (events.isEnabled()) {
+            events.publish(StepEvent.of(StepEvent.Type.PIPELINE_FAILED, null, null, e));
+        }
+        CompletableFuture<CompensationReport> report = compensationEngine.compensate(context);
+        CompensationLog log = context.getCompensationLog();
+        if (log != null && executionId != null) {
+            report.thenAccept(done -> {
+                if (done.isComplete()) {
+                    log.compensated(executionId);
+                }
+            });
+        }
+    }
+
+    // Gives the execution its own id, returned to the caller so it never reads it back from a
+    // context. The context writes the intent of each durable compensation as a stage registers it,
+    // i.e. before the stage applies the effect it undoes.
+    static String beginLogged(BaseTransactionContext context, CompensationLog log) {
+        if (log == null) {
+            return null;
+        }
+        String executionId = UUID.randomUUID().toString();
+        context.setExecutionId(executionId);
+        context.setCompensationLog(log);
+        return executionId;
+    }
+
+    static void commitLogged(CompensationLog log, String executionId) {
+        if (log != null) {
+            log.committed(executionId);
         }
     }
 }
@@ -0,0 +1,106 @@
+package org.acme.pattern.pipeline;
+
+import jakarta.transaction.Transactional;
+import org.acme.pattern.Handler;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.context.ContextPool;
+import org.acme.pattern.handlers.LoggingHandlerWrapper;
+
+import java.util.Arrays;
+
+// Immutable, shareable counterpart of Pipeline: built once at startup and executed concurrently.
+// Handlers never get setContext; each execution passes its own context to Handler.process(input,
+// context), taken from the pool and reset when the execution ends. Handlers used here must keep
+// their per-execution state in that context, as DatabaseHandler does.
+public final class PipelineDefinition<I, O> {
+    private static final int DEFAULT_POOL_CAPACITY = 256;
+    private static final String DEFAULT_NAME = "definition";
+
+    // Prefix of the positional stage names
+    private final String name;
+    private final Handler<Object, Object>[] stages;
+    private final ContextPool contextPool;
+    private final CompensationEngine compensationEngine;
+
+    private PipelineDefinition(String name, Handler<Object, Object>[] stages, ContextPool contextPool,
+                               CompensationEngine compensationEngine) {
+        this.name = name;
+        this.stages = stages;
+        this.contextPool = contextPool;
+        this.compensationEngine = compensationEngine;
+    }
+
+    public static <I, O> PipelineDefinition<I, O> of(Handler<I, O> firstHandler) {
+        return named(DEFAULT_NAME, firstHandler);
+    }
+
+    public static <I, O> PipelineDefinition<I, O> of(String stageName, Handler<I, O> firstHandler) {
+        return of(DEFAULT_NAME, stageName, firstHandler);
+    }
+
+    // Without a name the lambda stages are measured together with those of every unnamed definition
+    public static <I, O> PipelineDefinition<I, O> named(String name, Handler<I, O> firstHandler) {
+        return of(name, LoggingHandlerWrapper.stageName(firstHandler, name, 0), firstHandler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <I, O> PipelineDefinition<I, O> of(String name, String stageName, Handler<I, O> firstHandler) {
+        Handler<Object, Object>[] stages = new Handler[]{LoggingHandlerWrapper.timed(firstHandler, stageName)};
+        return new PipelineDefinition<>(name, stages, new ContextPool(DEFAULT_POOL_CAPACITY), CompensationEngine.defaults());
+    }
+
+    public <K> PipelineDefinition<I, K> addHandler(Handler<O, K> newHandler) {
+        return addHandler(LoggingHandlerWrapper.stageName(newHandler, name, stages.length), newHandler);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K> PipelineDefinition<I, K> addHandler(String stageName, Handler<O, K> newHandler) {
+        Handler<Object, Object>[] nextStages = Arrays.copyOf(stages, stages.length + 1);
+        nextStages[stages.length] = (Handler<Object, Object>) LoggingHandlerWrapper.timed(newHandler, stageName);
+        return new PipelineDefinition<>(name, nextStages, contextPool, compensationEngine);
+    }
+
+    public PipelineDefinition<I, O> withContextPool(ContextPool contextPool) {
+        return new PipelineDefinition<>(name, stages, contextPool, compensationEngine);
+    }
+
+    public PipelineDefinition<I, O> withCompensationEngine(CompensationEngine compensationEngine) {
+        return new PipelineDefinition<>(name, stages, contextPool, compensationEngine);
+    }
+
+    @Transactional
+    public O execute(I input) {
+        BaseTransactionContext context = contextPool.acquire();
+        try {
+            return execute(input, context);
+        } finally {
+            // An asynchronous engine works on its own snapshot of the compensations, reset is safe
+            contextPool.release(context);
+        }
+    }
+
+    // Runs one execution against a context owned by the caller
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public O execute(I input, BaseTransactionContext context) {
+        try {
+            Object result = input;
+            for (Handler<Object, Object> stage : stages) {
+                result = stage.process(result, context);
+            }
+            return (O) result;
+        } catch (Exception e) {
+            Pipeline.rollback(context, e, compensationEngine, null);
+            throw e;
+        }
+    }
+
+    public int size() {
+        return stages.length;
+    }
+
+    public ContextPool getContextPool() {
+        return contextPool;
+    }
+}
@@ -0,0 +1,6 @@
+package org.acme.pattern.pipeline;
+
+public enum StreamOrder {
+    ORDERED,    // Items leave in input order, a completed item keeps its slot until the ones before it left
+    UNORDERED   // Items leave as soon as they complete, in-flight work is refilled one item at a time
+}
@@ -0,0 +1,58 @@
+package org.acme.pattern.pipeline;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.handlers.DatabaseHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+public class VirtualThreadBenchmarkEntrypoint {
+    private static final int EXECUTIONS = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int STAGE_CONCURRENCY = 1_000;
+    private static final long REPOSITORY_LATENCY_NANOS = 10_000_000L;  // 10ms simulated round-trip
+
+    public static void main(String[] args) {
+        CompiledPipeline<Integer, Integer> pipeline = buildPipeline();
+
+        // Warm up both paths before measuring
+        run("warmup platform", new VirtualThreadPipelineExecutor<>(pipeline::execute,
+                Executors.newFixedThreadPool(PLATFORM_THREADS)), EXECUTIONS / 10);
+        run("warmup virtual", VirtualThreadPipelineExecutor.of(pipeline), EXECUTIONS / 10);
+
+        System.out.println("\n=== BLOCKING PIPELINE THROUGHPUT ===\n");
+        run("Platform threads (" + PLATFORM_THREADS + ")", new VirtualThreadPipelineExecutor<>(pipeline::execute,
+                Executors.newFixedThreadPool(PLATFORM_THREADS)), EXECUTIONS);
+        run("Virtual threads (cap " + STAGE_CONCURRENCY + ")", VirtualThreadPipelineExecutor.of(pipeline), EXECUTIONS);
+    }
+
+    private static CompiledPipeline<Integer, Integer> buildPipeline() {
+        BaseTransactionContext context = new BaseTransactionContext();
+        Handler<Integer, Integer> validate = input -> input + 1;
+        DatabaseHandler<Integer, Integer, Object> save = new DatabaseHandler<>(new Object(), (input, repository) -> {
+            LockSupport.parkNanos(REPOSITORY_LATENCY_NANOS);
+            return input * 2;
+        }, () -> { });
+        return new Pipeline<>(validate, context)
+                .addBlockingHandler(save, STAGE_CONCURRENCY)
+                .build();
+    }
+
+    private static void run(String label, VirtualThreadPipelineExecutor<Integer, Integer> executor, int executions) {
+        List<Integer> inputs = new ArrayList<>(executions);
+        for (int i = 0; i < executions; i++) {
+            inputs.add(i);
+        }
+        try (executor) {
+            long start = System.nanoTime();
+            CompletableFuture.allOf(executor.submitAll(inputs).toArray(new CompletableFuture[0])).join();
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d executions in %.3f s (%.0f ops/s)%n",
+                    label, executions, elapsedSeconds, executions / elapsedSeconds);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.acme.pattern.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Runs every execution on its own virtual thread, so blocking stages (DatabaseHandler) park
+// the virtual thread instead of holding a platform thread. Stages that need a concurrency cap
+// should be added with Pipeline.addBlockingHandler.
+// Pipeline and CompiledPipeline give every execution its own context, so concurrent executions
+// do not see each other's steps, errors or rollbacks.
+public class VirtualThreadPipelineExecutor<I, O> implements AutoCloseable {
+    private final Function<I, O> pipeline;
+    private final ExecutorService executor;
+
+    public VirtualThreadPipelineExecutor(Function<I, O> pipeline) {
+        this(pipeline, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    VirtualThreadPipelineExecutor(Function<I, O> pipeline, ExecutorService executor) {
+        this.pipeline = pipeline;
+        this.executor = executor;
+    }
+
+    public static <I, O> VirtualThreadPipelineExecutor<I, O> of(Pipeline<I, O> pipeline) {
+        return new VirtualThreadPipelineExecutor<>(pipeline::execute);
+    }
+
+    public static <I, O> VirtualThreadPipelineExecutor<I, O> of(CompiledPipeline<I, O> pipeline) {
+        return new VirtualThreadPipelineExecutor<>(pipeline::execute);
+    }
+
+    public CompletableFuture<O> submit(I input) {
+        return CompletableFuture.supplyAsync(() -> pipeline.apply(input), executor);
+    }
+
+    public List<CompletableFuture<O>> submitAll(List<I> inputs) {
+        List<CompletableFuture<O>> futures = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            futures.add(submit(input));
+        }
+        return futures;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,142 @@
+package org.acme;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.exceptions.LimitExceededException;
+import org.acme.pattern.handlers.AdaptiveLimitHandler;
+import org.acme.pattern.limit.AdaptiveLimiter;
+import org.acme.pattern.metrics.PipelineMetrics;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.acme.pattern.pipeline.VirtualThreadPipelineExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimiterTest {
+
+    @Test
+    void testLimitFollowsLatency() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("limiter-latency").initialLimit(2).window(10).build();
+        for (int i = 0; i < 100; i++) {
+            limiter.acquireBlocking();
+            limiter.release(1_000_000, false);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 2, "limit grew while latency stayed at the baseline: " + grown);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquireBlocking();
+            limiter.release(10_000_000, false);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void testExcessRequestsAreShed() throws InterruptedException {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("limiter-shed").initialLimit(2).maxQueue(0).build();
+        CountDownLatch inside = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Handler<Integer, Integer> slow = input -> {
+            inside.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return input;
+        };
+        Handler<Integer, Integer> first = input -> input;
+        Pipeline<Integer, Integer> pipeline = new Pipeline<>(first, new BaseTransactionContext())
+                .addLimitedHandler(slow, limiter);
+
+        try (VirtualThreadPipelineExecutor<Integer, Integer> executor = VirtualThreadPipelineExecutor.of(pipeline)) {
+            List<CompletableFuture<Integer>> running = executor.submitAll(List.of(1, 2));
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            CompletionException shed = assertThrows(CompletionException.class, () -> executor.submit(3).join());
+            assertInstanceOf(LimitExceededException.class, shed.getCause());
+            assertEquals(1, limiter.getRejectedCount());
+
+            release.countDown();
+            assertEquals(3, running.stream().mapToInt(CompletableFuture::join).sum());
+        }
+    }
+
+    @Test
+    void testQueuedMutinyRequestsResume() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("limiter-queue")
+                .initialLimit(1).maxLimit(1).queueTimeout(Duration.ofSeconds(5)).build();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        MutinyHandler<Integer, Integer> lookup = input -> Uni.createFrom().item(input)
+                .invoke(() -> maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max))
+                .onItem().delayIt().by(Duration.ofMillis(5))
+                .invoke(concurrent::decrementAndGet);
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<Integer, Integer>(Uni.createFrom()::item)
+                .addLimitedHandler(lookup, limiter);
+
+        List<Integer> results = pipeline.stream(Multi.createFrom().range(0, 8), 8)
+                .collect().asList().await().atMost(Duration.ofSeconds(10));
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), results);
+        assertEquals(1, maxConcurrent.get());
+        assertTrue(PipelineMetrics.limits().contains(limiter));
+    }
+
+    @Test
+    void testCancelledRequestsReturnTheirPermit() throws Exception {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("limiter-cancel")
+                .initialLimit(1).maxLimit(1).queueTimeout(Duration.ofSeconds(5)).build();
+        MutinyHandler<Integer, Integer> limited = AdaptiveLimitHandler.mutiny(Uni.createFrom()::item, limiter);
+
+        // The permit is granted on one thread while the subscription is cancelled on another
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 500; i++) {
+                limiter.acquireBlocking();
+                Cancellable subscription = limited.process(i).subscribe().with(ignored -> {
+                });
+                Future<?> released = executor.submit(() -> limiter.release(1_000_000, false));
+                subscription.cancel();
+                released.get();
+                assertEquals(0, limiter.getInFlight(), "iteration " + i);
+            }
+        }
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testCancelledWaitersLeaveTheQueue() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder("limiter-withdraw")
+                .initialLimit(1).maxLimit(1).maxQueue(1).queueTimeout(Duration.ofSeconds(30)).build();
+        limiter.acquireBlocking();
+
+        CompletableFuture<Void> cancelled = limiter.acquire();
+        assertEquals(1, limiter.getQueueDepth());
+        cancelled.cancel(false);
+        assertEquals(0, limiter.getQueueDepth());
+
+        // The freed place is taken instead of shedding the caller
+        CompletableFuture<Void> queued = limiter.acquire();
+        assertFalse(queued.isCompletedExceptionally());
+        assertEquals(0, limiter.getRejectedCount());
+        limiter.release(1_000_000, false);
+        assertTrue(queued.isDone());
+        assertEquals(1, limiter.getInFlight());
+    }
+}
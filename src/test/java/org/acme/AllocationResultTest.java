@@ -0,0 +1,68 @@
+package org.acme;
+
+import org.acme.opt.AllocationResult;
+import org.acme.opt.MaximizeResourceUsage;
+import org.acme.opt.Project;
+import org.acme.opt.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationResultTest {
+
+    @Test
+    void testStatsComeFromQuantities() {
+        List<Resource> resources = List.of(new Resource("A", 5, 1), new Resource("B", 3, 1), new Resource("C", 10, 1));
+        List<Project> projects = List.of(
+                new Project("P0", Map.of("A", 4, "B", 2)),
+                new Project("P1", Map.of("A", 3)),
+                new Project("P2", Map.of("C", 2)),
+                new Project("P3", Map.of()));
+
+        AllocationResult result = new MaximizeResourceUsage(resources, projects).allocate();
+
+        assertTrue(result.isSolved());
+        assertEquals(18, result.totalCapacity());
+        assertEquals(9, result.totalUsed());
+        assertEquals(5, result.used(result.getProblem().resourceId("A")));
+        assertEquals(2, result.used(result.getProblem().resourceId("B")));
+        assertEquals(2, result.used(result.getProblem().resourceId("C")));
+
+        // A is short by 2, however the solver splits it between P0 and P1
+        int missingA = result.missing(0).getOrDefault("A", 0) + result.missing(1).getOrDefault("A", 0);
+        assertEquals(2, missingA);
+        assertEquals(2, result.assignments(0).get("B"));
+        for (int p = 0; p < 2; p++) {
+            assertEquals((double) result.assigned(p) / result.required(p) * 100, result.completion(p), 1e-9);
+        }
+        assertEquals(Map.of("C", 2), result.assignments(2));
+        assertTrue(result.missing(2).isEmpty());
+        assertEquals(100.0, result.completion(2));
+        assertEquals(100.0, result.completion(3));
+    }
+
+    @Test
+    void testResourceListsMatchQuantities() {
+        List<Resource> resources = List.of(new Resource("A", 5, 2), new Resource("B", 3, 1));
+        List<Project> projects = List.of(
+                new Project("P0", Map.of("A", 4, "B", 2)),
+                new Project("P1", Map.of("A", 3)),
+                new Project("P2", Map.of()));
+        MaximizeResourceUsage solver = new MaximizeResourceUsage(resources, projects);
+
+        AllocationResult result = solver.allocate();
+        Map<Project, List<Resource>> lists = result.toResourceLists();
+
+        assertFalse(lists.containsKey(projects.get(2)));
+        for (int p = 0; p < result.projectCount(); p++) {
+            List<Resource> assigned = lists.getOrDefault(result.project(p), List.of());
+            assertEquals(result.assigned(p), assigned.size());
+            assertEquals(result.completion(p), solver.calculateProjectCompletion(result.project(p), assigned), 1e-9);
+            assertTrue(assigned.stream().allMatch(resource -> resource.getAvailableCapacity() == 1));
+        }
+        assertEquals(result.totalUsed(), solver.solve().values().stream().mapToInt(List::size).sum());
+    }
+}
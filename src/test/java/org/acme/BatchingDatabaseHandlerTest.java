@@ -0,0 +1,88 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.handlers.BatchingDatabaseHandler;
+import org.acme.pattern.pipeline.Pipeline;
+import org.acme.pattern.pipeline.VirtualThreadPipelineExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingDatabaseHandlerTest {
+
+    // Stand-in for a repository with a bulk insert
+    static class Store {
+        final Map<Integer, String> rows = new ConcurrentHashMap<>();
+        private int nextId;
+
+        synchronized List<Integer> insertAll(List<String> values) {
+            if (values.contains("bad")) {
+                throw new IllegalArgumentException("bad row");
+            }
+            return values.stream().map(value -> {
+                int id = nextId++;
+                rows.put(id, value);
+                return id;
+            }).toList();
+        }
+    }
+
+    @Test
+    void testConcurrentExecutionsShareBulkCalls() {
+        Store store = new Store();
+        BatchingDatabaseHandler<String, Integer, Store> insert = new BatchingDatabaseHandler<>(store,
+                (values, repository) -> repository.insertAll(values),
+                (id, repository) -> repository.rows.remove(id), 16, Duration.ofMillis(20));
+        Handler<Integer, String> format = i -> "row-" + i;
+        Pipeline<Integer, String> pipeline = new Pipeline<>(format, new BaseTransactionContext())
+                .addHandler(insert)
+                .addHandler(id -> store.rows.get(id));
+
+        try (VirtualThreadPipelineExecutor<Integer, String> executor = VirtualThreadPipelineExecutor.of(pipeline)) {
+            List<CompletableFuture<String>> results = executor.submitAll(IntStream.range(0, 64).boxed().toList());
+            for (int i = 0; i < 64; i++) {
+                assertEquals("row-" + i, results.get(i).join());
+            }
+        }
+
+        assertEquals(64, insert.getBatcher().getItemCount());
+        assertTrue(insert.getBatcher().getBatchCount() < 64);
+    }
+
+    @Test
+    void testFailureOnlyCompensatesItsOwnBatch() {
+        Store store = new Store();
+        BaseTransactionContext context = new BaseTransactionContext();
+        BatchingDatabaseHandler<String, Integer, Store> insert = new BatchingDatabaseHandler<>(store,
+                (values, repository) -> repository.insertAll(values),
+                (id, repository) -> repository.rows.remove(id), 1, Duration.ofMillis(20));
+        Handler<String, String> first = value -> value;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(first, context)
+                .addHandler(insert)
+                .addHandler(id -> {
+                    if (store.rows.get(id).startsWith("late")) {
+                        throw new IllegalStateException("late failure");
+                    }
+                    return id;
+                });
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, pipeline.execute("good-" + i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute("bad"));
+        assertThrows(IllegalStateException.class, () -> pipeline.execute("late"));
+
+        // The failed bulk call wrote nothing, the late failure only removed its own row
+        assertEquals(5, store.rows.size());
+        assertFalse(store.rows.containsValue("late"));
+        assertTrue(context.getRollbackCallbacks().isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package org.acme;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.handlers.BatchingMutinyHandler;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingMutinyHandlerTest {
+
+    @Test
+    void testConcurrentExecutionsShareWindows() {
+        List<Integer> windows = new CopyOnWriteArrayList<>();
+        // Answers asynchronously, as a remote bulk API would
+        MutinyHandler<List<Integer>, List<Integer>> doubleAll = inputs -> {
+            windows.add(inputs.size());
+            return Uni.createFrom().item(inputs.stream().map(i -> i * 2).toList())
+                    .onItem().delayIt().by(Duration.ofMillis(5));
+        };
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<Integer, Integer>(i -> Uni.createFrom().item(i))
+                .addBatchedHandler(doubleAll, 4, Duration.ofMillis(50));
+
+        List<Uni<Integer>> executions = IntStream.range(0, 10).mapToObj(pipeline::execute).toList();
+        List<Integer> results = Uni.join().all(executions).andFailFast().await().atMost(Duration.ofSeconds(2));
+
+        assertEquals(IntStream.range(0, 10).map(i -> i * 2).boxed().toList(), results);
+        assertEquals(List.of(4, 4, 2), windows);
+    }
+
+    @Test
+    void testWindowFailureReachesEveryItem() {
+        MutinyHandler<List<String>, List<String>> failing = inputs ->
+                Uni.createFrom().failure(new IllegalStateException("bulk down"));
+        try (BatchingMutinyHandler<String, String> batching = new BatchingMutinyHandler<>(failing, 2, Duration.ofSeconds(10))) {
+            CompletableFuture<String> a = batching.process("a").subscribeAsCompletionStage();
+            CompletableFuture<String> b = batching.process("b").subscribeAsCompletionStage();
+
+            // Both items failed with the window's error, the size limit closed the window long before maxDelay
+            for (CompletableFuture<String> item : List.of(a, b)) {
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> item.get(2, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, failure.getCause());
+            }
+            assertEquals(1, batching.getBatcher().getBatchCount());
+        }
+    }
+}
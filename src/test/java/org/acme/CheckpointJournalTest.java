@@ -0,0 +1,114 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.checkpoint.CheckpointJournal;
+import org.acme.pattern.checkpoint.CheckpointSerializer;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.CompiledPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRetryResumesAfterLastCompletedStage() {
+        AtomicInteger expensiveCalls = new AtomicInteger();
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        Handler<Integer, Integer> expensive = input -> {
+            expensiveCalls.incrementAndGet();
+            return input * 10;
+        };
+        try (CheckpointJournal journal = new CheckpointJournal(dir.resolve("journal"))) {
+            CompiledPipeline<Integer, String> pipeline = new Pipeline<>(expensive, new BaseTransactionContext())
+                    .addHandler(input -> input + 1)
+                    .addHandler(input -> {
+                        if (failOnce.getAndSet(false)) {
+                            throw new IllegalStateException("late stage failed");
+                        }
+                        return "result-" + input;
+                    })
+                    .build()
+                    .withCheckpoints(journal);
+
+            assertThrows(IllegalStateException.class, () -> pipeline.execute("exec-1", 4));
+            assertEquals(1, journal.latest("exec-1").getStage());
+
+            assertEquals("result-41", pipeline.execute("exec-1", 4));
+            assertEquals(1, expensiveCalls.get());
+            // Completing the only pending execution compacts the journal down to its header
+            assertEquals(0, journal.pendingExecutions());
+            assertEquals(Integer.BYTES, journal.usedBytes());
+        }
+    }
+
+    @Test
+    void testOldestFailedExecutionsAreAbandonedPastTheBound() {
+        List<Integer> rolledBack = new CopyOnWriteArrayList<>();
+        Handler<Integer, Integer> reserve = new Handler<>() {
+            @Override
+            public Integer process(Integer input) {
+                throw new UnsupportedOperationException("needs the execution context");
+            }
+
+            @Override
+            public Integer process(Integer input, BaseTransactionContext context) {
+                context.addRollbackCallback(() -> rolledBack.add(input));
+                return input;
+            }
+        };
+        try (CheckpointJournal journal = new CheckpointJournal(dir.resolve("bounded"))) {
+            CompiledPipeline<Integer, Integer> pipeline = new Pipeline<>(reserve, new BaseTransactionContext())
+                    .<Integer>addHandler(input -> {
+                        throw new IllegalStateException("always fails");
+                    })
+                    .build()
+                    .withCheckpoints(journal, 2);
+
+            for (int i = 0; i < 3; i++) {
+                int input = i;
+                assertThrows(IllegalStateException.class, () -> pipeline.execute("exec-" + input, input));
+            }
+
+            // Nobody retried or abandoned exec-0: it was compensated to make room for exec-2
+            assertEquals(2, pipeline.pendingCount());
+            assertEquals(List.of(0), rolledBack);
+            assertNull(journal.latest("exec-0"));
+            assertNotNull(journal.latest("exec-1"));
+
+            pipeline.abandon("exec-1", new IllegalStateException("given up"));
+            assertEquals(1, pipeline.pendingCount());
+            assertEquals(List.of(0, 1), rolledBack);
+        }
+    }
+
+    @Test
+    void testReopenedJournalRecoversPendingExecutions() {
+        Path file = dir.resolve("journal");
+        try (CheckpointJournal journal = new CheckpointJournal(file, 256, CheckpointSerializer.JAVA, true)) {
+            for (int i = 0; i < 20; i++) {
+                journal.record("done-" + i, 0, "value-" + i);
+                journal.record("pending", i, i);
+                journal.complete("done-" + i);
+            }
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(file, 256, CheckpointSerializer.JAVA, false)) {
+            assertEquals(1, journal.pendingExecutions());
+            assertEquals(19, journal.latest("pending").getStage());
+            assertEquals(19, journal.latest("pending").getResult());
+            assertNull(journal.latest("done-3"));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.compensation.Compensation;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationReport;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.events.StepEventSink;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompensationEngineTest {
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testDefaultOrderIsReverseRegistration() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Compensation> compensations = List.of(
+                Compensation.of("a", () -> order.add("a")),
+                Compensation.of("b", () -> order.add("b")),
+                Compensation.of("c", () -> order.add("c")));
+
+        CompensationReport report = CompensationEngine.defaults()
+                .compensate(compensations, StepEventSink.NOOP).join();
+
+        assertTrue(report.isComplete());
+        assertEquals(List.of("c", "b", "a"), order);
+    }
+
+    @Test
+    void testLargeRollbacksStayLinear() {
+        int count = 20_000;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Compensation> compensations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            compensations.add(i % 100 == 50
+                    ? Compensation.independent("independent-" + i, () -> {
+                    })
+                    : Compensation.of("step-" + i, () -> order.add(index)));
+        }
+
+        CompensationReport report = assertTimeoutPreemptively(Duration.ofSeconds(20), () ->
+                CompensationEngine.defaults().compensate(compensations, StepEventSink.NOOP).join());
+
+        assertTrue(report.isComplete());
+        assertEquals(count - count / 100, order.size());
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(order.get(i - 1) > order.get(i), "out of order at " + i);
+        }
+    }
+
+    @Test
+    void testIndependentCompensationsRunInParallel() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable meet = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Compensation> compensations = List.of(
+                Compensation.after("last", () -> order.add("last"), "x", "y"),
+                Compensation.independent("x", meet::run),
+                Compensation.independent("y", meet::run));
+
+        CompensationReport report = CompensationEngine.defaults()
+                .compensate(compensations, StepEventSink.NOOP).join();
+
+        assertTrue(report.isComplete());
+        assertEquals(List.of("last"), order);
+    }
+
+    @Test
+    void testTimeoutAndFailureAreReported() {
+        CompensationEngine engine = CompensationEngine.builder()
+                .callbackTimeout(Duration.ofMillis(50))
+                .build();
+        List<Compensation> compensations = List.of(
+                Compensation.independent("slow", () -> sleep(300)),
+                Compensation.independent("broken", () -> { throw new IllegalStateException("boom"); }),
+                Compensation.independent("fine", () -> { }));
+
+        CompensationReport report = engine.compensate(compensations, StepEventSink.NOOP).join();
+
+        assertFalse(report.isComplete());
+        assertEquals(List.of(CompensationReport.Status.TIMED_OUT, CompensationReport.Status.FAILED,
+                        CompensationReport.Status.SUCCEEDED),
+                report.getOutcomes().stream().map(CompensationReport.Outcome::getStatus).toList());
+    }
+
+    @Test
+    void testDependentsWaitForTimedOutCallbacks() {
+        CompensationEngine engine = CompensationEngine.builder()
+                .callbackTimeout(Duration.ofMillis(50))
+                .build();
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Compensation> compensations = List.of(
+                Compensation.after("dependent", () -> order.add("dependent"), "slow"),
+                Compensation.independent("slow", () -> {
+                    sleep(300);
+                    order.add("slow");
+                }));
+
+        CompensationReport report = engine.compensate(compensations, StepEventSink.NOOP).join();
+
+        assertEquals(List.of("slow", "dependent"), order);
+        assertEquals(List.of(CompensationReport.Status.SUCCEEDED, CompensationReport.Status.TIMED_OUT),
+                report.getOutcomes().stream().map(CompensationReport.Outcome::getStatus).toList());
+    }
+
+    @Test
+    void testCallbacksRunningAtTheDeadlineAreTimedOut() {
+        CompensationEngine engine = CompensationEngine.builder()
+                .deadline(Duration.ofMillis(100))
+                .build();
+        List<Compensation> compensations = List.of(
+                Compensation.after("dependent", () -> { }, "stuck"),
+                Compensation.independent("stuck", () -> sleep(1_000)));
+
+        CompensationReport report = engine.compensate(compensations, StepEventSink.NOOP).join();
+
+        assertEquals(List.of(CompensationReport.Status.SKIPPED, CompensationReport.Status.TIMED_OUT),
+                report.getOutcomes().stream().map(CompensationReport.Outcome::getStatus).toList());
+    }
+
+    @Test
+    void testAsyncPipelineRethrowsBeforeCompensationsFinish() {
+        CountDownLatch release = new CountDownLatch(1);
+        BaseTransactionContext context = new BaseTransactionContext();
+        Handler<Integer, Integer> register = new Handler<>() {
+            @Override
+            public Integer process(Integer input) {
+                return input;
+            }
+
+            @Override
+            public Integer process(Integer input, BaseTransactionContext execution) {
+                execution.addRollbackCallback(() -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return input;
+            }
+        };
+        Pipeline<Integer, Integer> pipeline = new Pipeline<>(register, context)
+                .<Integer>addHandler(input -> { throw new IllegalArgumentException("fail " + input); })
+                .withCompensationEngine(CompensationEngine.builder().async(true).build());
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute(1));
+        assertFalse(context.get(CompensationEngine.REPORT).isDone());
+
+        release.countDown();
+        assertTrue(context.get(CompensationEngine.REPORT).join().isComplete());
+    }
+}
@@ -0,0 +1,141 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.compensation.CompensationDescriptor;
+import org.acme.pattern.compensation.CompensationEngine;
+import org.acme.pattern.compensation.CompensationLog;
+import org.acme.pattern.compensation.CompensationRegistry;
+import org.acme.pattern.compensation.CompensationReport;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.handlers.DatabaseHandler;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompensationLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecoveryCompensatesUncommittedExecutions() {
+        Path file = dir.resolve("compensations.wal");
+        // First run: exec-1 dies before committing, exec-2 commits
+        CompensationLog crashed = new CompensationLog(file);
+        crashed.intents("exec-1", List.of(new CompensationDescriptor("delete", "a"), new CompensationDescriptor("delete", "b")));
+        crashed.intents("exec-2", List.of(new CompensationDescriptor("delete", "c")));
+        crashed.committed("exec-2");
+        crashed.close();
+
+        List<String> deleted = new CopyOnWriteArrayList<>();
+        CompensationRegistry registry = new CompensationRegistry().register("delete", deleted::add);
+        try (CompensationLog log = new CompensationLog(file)) {
+            assertEquals(List.of("exec-1"), List.copyOf(log.outstanding().keySet()));
+            Map<String, CompensationReport> reports = log.recover(registry, CompensationEngine.defaults());
+            assertTrue(reports.get("exec-1").isComplete());
+        }
+        assertEquals(List.of("b", "a"), deleted);
+
+        try (CompensationLog log = new CompensationLog(file)) {
+            assertTrue(log.outstanding().isEmpty());
+        }
+    }
+
+    @Test
+    void testPipelineLogsDurableDatabaseCompensations() throws Exception {
+        Path file = dir.resolve("pipeline.wal");
+        List<String> deleted = new CopyOnWriteArrayList<>();
+        CompensationRegistry registry = new CompensationRegistry().register("delete", deleted::add);
+
+        try (CompensationLog log = new CompensationLog(file, Duration.ofMillis(5))) {
+            // The descriptor names the row the execution inserted
+            Handler<String, String> insert = new DatabaseHandler<String, String, List<String>>(new CopyOnWriteArrayList<>(),
+                    (value, rows) -> { rows.add(value); return value; },
+                    (String row) -> new CompensationDescriptor("delete", row), registry);
+            Pipeline<String, String> pipeline = new Pipeline<>(insert, new BaseTransactionContext())
+                    .<String>addHandler(value -> {
+                        if (value.startsWith("bad")) {
+                            throw new IllegalArgumentException(value);
+                        }
+                        return value;
+                    })
+                    .withCompensationLog(log);
+
+            assertEquals("x", pipeline.execute("x"));
+            assertThrows(IllegalArgumentException.class, () -> pipeline.execute("bad-1"));
+            assertEquals("y", pipeline.execute("y"));
+            assertThrows(IllegalArgumentException.class, () -> pipeline.execute("bad-2"));
+            assertEquals(List.of("bad-1", "bad-2"), deleted);
+
+            // Concurrent writers share syncs
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 32; i++) {
+                    String executionId = "concurrent-" + i;
+                    executor.submit(() -> log.committed(executionId));
+                }
+            }
+            assertTrue(log.getSyncCount() < log.getRecordCount());
+        }
+
+        try (CompensationLog log = new CompensationLog(file)) {
+            assertTrue(log.outstanding().isEmpty());
+        }
+    }
+
+    @Test
+    void testLogIsCompactedOnceMostRecordsAreClosed() throws Exception {
+        Path file = dir.resolve("compacted.wal");
+        try (CompensationLog log = new CompensationLog(file, Duration.ZERO, 4096)) {
+            log.intents("open", List.of(new CompensationDescriptor("delete", "kept")));
+            for (int i = 0; i < 500; i++) {
+                String executionId = "exec-" + i;
+                log.intents(executionId, List.of(new CompensationDescriptor("delete", "row-" + i)));
+                log.committed(executionId);
+            }
+            assertTrue(log.getCompactionCount() > 0);
+            assertTrue(Files.size(file) < 2 * 4096);
+        }
+
+        try (CompensationLog log = new CompensationLog(file)) {
+            assertEquals(Map.of("open", List.of(new CompensationDescriptor("delete", "kept"))), log.outstanding());
+        }
+    }
+
+    @Test
+    void testIntentIsDurableBeforeTheOperationRuns() throws Exception {
+        Path file = dir.resolve("ahead.wal");
+        List<String> rows = new CopyOnWriteArrayList<>();
+        CompensationRegistry registry = new CompensationRegistry().register("delete", rows::remove);
+
+        try (CompensationLog log = new CompensationLog(file)) {
+            // The process dies inside the operation, before the row exists
+            Handler<String, String> insert = new DatabaseHandler<String, String, List<String>>(rows,
+                    (value, repository) -> { throw new OutOfMemoryError("crash"); },
+                    (String row) -> new CompensationDescriptor("delete", row), registry);
+            Pipeline<String, String> pipeline = new Pipeline<>(insert, new BaseTransactionContext())
+                    .withCompensationLog(log);
+
+            assertThrows(OutOfMemoryError.class, () -> pipeline.execute("row-1"));
+        }
+
+        try (CompensationLog log = new CompensationLog(file)) {
+            assertEquals(List.of(List.of(new CompensationDescriptor("delete", "row-1"))),
+                    List.copyOf(log.outstanding().values()));
+            // Recovery undoes an effect that never happened: the action is a no-op then
+            Map<String, CompensationReport> reports = log.recover(registry, CompensationEngine.defaults());
+            assertTrue(reports.values().iterator().next().isComplete());
+            assertTrue(rows.isEmpty());
+        }
+    }
+}
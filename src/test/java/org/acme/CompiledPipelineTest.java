@@ -0,0 +1,47 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.CompiledPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledPipelineTest {
+
+    @Test
+    void testCompiledMatchesChained() {
+        BaseTransactionContext context = new BaseTransactionContext();
+        Handler<String, Integer> length = String::length;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(length, context)
+                .addHandler(i -> i * 2)
+                .addHandler(i -> i + 1);
+
+        CompiledPipeline<String, Integer> compiled = pipeline.build();
+
+        assertEquals(3, compiled.size());
+        assertEquals(pipeline.execute("test"), compiled.execute("test"));
+        assertEquals(9, (Integer) context.getIntermediateResult());
+    }
+
+    @Test
+    void testCompiledRunsRollbacksOnFailure() {
+        BaseTransactionContext context = new BaseTransactionContext();
+        AtomicInteger rollbacks = new AtomicInteger();
+        context.addRollbackCallback(rollbacks::incrementAndGet);
+
+        Handler<String, Integer> length = String::length;
+        CompiledPipeline<String, Integer> compiled = new Pipeline<>(length, context)
+                .<Integer>addHandler(i -> {
+                    throw new IllegalStateException("boom");
+                })
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> compiled.execute("test"));
+        assertEquals(1, rollbacks.get());
+        assertNotNull(context.getError());
+    }
+}
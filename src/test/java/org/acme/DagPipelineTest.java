@@ -0,0 +1,164 @@
+package org.acme;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.DagPipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagPipelineTest {
+
+    // Registers its own rollback and optionally fails
+    static class Step implements Handler<Object, String> {
+        private final String name;
+        private final List<String> log;
+        private final boolean fail;
+
+        Step(String name, List<String> log, boolean fail) {
+            this.name = name;
+            this.log = log;
+            this.fail = fail;
+        }
+
+        @Override
+        public void setContext(BaseTransactionContext context) {
+            context.addRollbackCallback(() -> log.add("undo " + name));
+        }
+
+        @Override
+        public String process(Object input) {
+            if (fail) {
+                throw new IllegalStateException(name + " failed");
+            }
+            return name;
+        }
+    }
+
+    private static void meet(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "loaders did not run concurrently");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testIndependentStagesRunConcurrently() {
+        CountDownLatch bothLoading = new CountDownLatch(2);
+        BaseTransactionContext context = new BaseTransactionContext();
+
+        DagPipeline<Integer> dag = DagPipeline.<Integer>builder(context)
+                .stage("solution", List.of("resources", "projects"),
+                        loaded -> (Integer) loaded.get("resources") + (Integer) loaded.get("projects"))
+                .stage("resources", DagPipeline.INPUT, (Integer count) -> {
+                    meet(bothLoading);
+                    return count * 2;
+                })
+                .asyncStage("projects", DagPipeline.INPUT, (Integer count) -> Uni.createFrom().item(() -> {
+                    meet(bothLoading);
+                    return count * 3;
+                }))
+                .build();
+
+        Map<String, Object> outputs = dag.execute(10).join();
+
+        assertEquals(50, outputs.get("solution"));
+        assertEquals(20, (Integer) context.get("resources"));
+    }
+
+    @Test
+    void testOnlyStartedStagesAreCompensatedInReverseOrder() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        BaseTransactionContext context = new BaseTransactionContext();
+        DagPipeline<String> dag = DagPipeline.<String>builder(context)
+                .stage("a", DagPipeline.INPUT, new Step("a", log, false))
+                .stage("b", "a", new Step("b", log, false))
+                .stage("c", "b", new Step("c", log, true))
+                .stage("d", "c", new Step("d", log, false))
+                .build();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> dag.execute("x").join());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(List.of("undo c", "undo b", "undo a"), log);
+    }
+
+    @Test
+    void testStageThrowingInsteadOfFailingIsCompensated() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        BaseTransactionContext context = new BaseTransactionContext();
+        DagPipeline<String> dag = DagPipeline.<String>builder(context)
+                .stage("a", DagPipeline.INPUT, new Step("a", log, false))
+                .<String, String>asyncStage("b", "a", value -> {
+                    throw new IllegalStateException("thrown before any Uni");
+                })
+                .build();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> dag.execute("x").join());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(List.of("undo a"), log);
+        assertInstanceOf(IllegalStateException.class, context.getError());
+    }
+
+    @Test
+    void testCyclesAreRejected() {
+        DagPipeline.Builder<Object> builder = DagPipeline.builder(new BaseTransactionContext())
+                .stage("a", "b", value -> value)
+                .stage("b", "a", value -> value);
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    void testConcurrentExecutionsCompensateOnlyTheirOwnStages() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        BaseTransactionContext context = new BaseTransactionContext();
+        // Registers a rollback naming the input of the execution it runs in
+        Handler<Integer, Integer> reserve = new Handler<>() {
+            @Override
+            public Integer process(Integer input) {
+                return input;
+            }
+
+            @Override
+            public Integer process(Integer input, BaseTransactionContext execution) {
+                execution.addRollbackCallback(() -> log.add("release " + input));
+                return input;
+            }
+        };
+        Handler<Integer, Integer> rejectOdd = value -> {
+            if (value % 2 != 0) {
+                throw new IllegalArgumentException("odd " + value);
+            }
+            return value;
+        };
+        DagPipeline<Integer> dag = DagPipeline.<Integer>builder(context)
+                .stage("reserved", DagPipeline.INPUT, reserve)
+                .stage("checked", "reserved", rejectOdd)
+                .build();
+
+        List<CompletableFuture<Map<String, Object>>> executions = IntStream.range(0, 50)
+                .mapToObj(dag::execute)
+                .toList();
+        executions.forEach(execution -> execution.handle((outputs, error) -> null).join());
+
+        assertEquals(25, executions.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+        assertEquals(25, log.size());
+        assertTrue(log.stream().allMatch(entry -> Integer.parseInt(entry.substring("release ".length())) % 2 != 0));
+        assertTrue(context.getRollbackCallbacks().isEmpty());
+        assertTrue(context.getExecutedSteps().isEmpty());
+    }
+}
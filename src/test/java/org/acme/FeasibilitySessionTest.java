@@ -0,0 +1,134 @@
+package org.acme;
+
+import org.acme.opt.FeasibilityResult;
+import org.acme.opt.FeasibilitySession;
+import org.acme.opt.Project;
+import org.acme.opt.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeasibilitySessionTest {
+
+    private static List<Resource> resources(int... capacities) {
+        return IntStream.range(0, capacities.length)
+                .mapToObj(i -> new Resource("Resource" + i, capacities[i], 1))
+                .toList();
+    }
+
+    // Rounded, the LP answers within floating point noise
+    private static Map<String, Double> slacks(FeasibilityResult result) {
+        return result.getResourceSlacks().entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().getName(),
+                        entry -> Math.round(entry.getValue() * 1e6) / 1e6));
+    }
+
+    // Reference: the same problem built from scratch
+    private static Map<String, Double> solveFresh(List<Resource> resources, List<Project> projects) {
+        try (FeasibilitySession fresh = new FeasibilitySession(resources, projects)) {
+            return slacks(fresh.solve());
+        }
+    }
+
+    @Test
+    void testUpdatesMatchAFreshSolve() {
+        Map<String, Integer> requirements = new HashMap<>(Map.of("Resource0", 12, "Resource1", 5, "Resource2", 8));
+        try (FeasibilitySession session = new FeasibilitySession(resources(10, 10, 10),
+                List.of(new Project("Project0", requirements)))) {
+            assertEquals(Map.of("Resource0", 2.0, "Resource1", 0.0, "Resource2", 0.0), slacks(session.solve()));
+
+            session.setCapacity("Resource0", 20);
+            session.setRequirement("Project0", "Resource1", 14);
+            requirements.put("Resource1", 14);
+            Map<String, Double> updated = slacks(session.solve());
+
+            assertEquals(Map.of("Resource0", 0.0, "Resource1", 4.0, "Resource2", 0.0), updated);
+            assertEquals(solveFresh(resources(20, 10, 10), List.of(new Project("Project0", requirements))), updated);
+
+            // Dropping a requirement switches its column off, adding it back reuses it
+            session.setRequirement("Project0", "Resource0", 0);
+            assertEquals(Map.of("Resource0", 0.0, "Resource1", 4.0, "Resource2", 0.0), slacks(session.solve()));
+            session.setRequirement("Project0", "Resource0", 25);
+            assertEquals(5.0, slacks(session.solve()).get("Resource0"));
+        }
+    }
+
+    @Test
+    void testRemovedProjectsLeaveTheModel() {
+        Project project = new Project("Project0", Map.of("Resource0", 15));
+        try (FeasibilitySession session = new FeasibilitySession(resources(10), List.of(project))) {
+            // One slack, one selection and one allocation: no columns for pairs without requirement
+            int variables = session.getVariableCount();
+            assertEquals(3, variables);
+
+            session.addProject(new Project("Project1", Map.of("Resource0", 3)));
+            session.removeProject("Project1");
+            FeasibilityResult result = session.solve();
+
+            assertEquals(Map.of("Resource0", 5.0), slacks(result));
+            assertEquals(Map.of(project, true), result.getProjectSelections());
+
+            // Removed columns outnumber the live ones: the next solve rebuilds without them
+            session.addProject(new Project("Project2", Map.of("Resource0", 1)));
+            session.removeProject("Project2");
+            session.solve();
+            assertEquals(variables, session.getVariableCount());
+        }
+    }
+
+    @Test
+    void testAddedProjectsMatchAFreshSolve() {
+        Project first = new Project("Project0", Map.of("Resource0", 12, "Resource1", 4));
+        Project second = new Project("Project1", Map.of("Resource2", 7, "Resource3", 15));
+        try (FeasibilitySession session = new FeasibilitySession(resources(10, 10, 10, 10), List.of(first))) {
+            assertEquals(Map.of("Resource0", 2.0, "Resource1", 0.0, "Resource2", 0.0, "Resource3", 0.0),
+                    slacks(session.solve()));
+
+            session.addProject(second);
+            FeasibilityResult result = session.solve();
+
+            assertEquals(solveFresh(resources(10, 10, 10, 10), List.of(first, second)), slacks(result));
+            assertEquals(Map.of(first, true, second, true), result.getProjectSelections());
+
+            // A requirement the session cannot place is refused, as by setRequirement
+            Project unknown = new Project("Project2", Map.of("Resource0", 1, "Resource9", 1));
+            assertThrows(IllegalArgumentException.class, () -> session.addProject(unknown));
+            assertThrows(IllegalArgumentException.class, () -> session.setRequirement("Project0", "Resource9", 1));
+            assertEquals(slacks(result), slacks(session.solve()));
+        }
+    }
+
+    @Test
+    void testUnknownResourcesAreRejectedUpFront() {
+        List<Project> projects = List.of(
+                new Project("Project0", Map.of("Resource0", 4)),
+                new Project("Project1", Map.of("Resource1", 3, "Resource9", 2)));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new FeasibilitySession(resources(10, 10), projects));
+        assertEquals("Unknown resource: Resource9", error.getMessage());
+    }
+
+    @Test
+    void testFailedSolveIsReportedInfeasible() {
+        // Each resource goes to one project at most, both projects are forced in
+        try (FeasibilitySession session = new FeasibilitySession(resources(10),
+                List.of(new Project("Project0", Map.of("Resource0", 4)), new Project("Project1", Map.of("Resource0", 3))))) {
+            FeasibilityResult result = session.solve();
+
+            assertFalse(result.isFeasible());
+            assertTrue(result.getProjectSelections().isEmpty());
+            assertTrue(result.getResourceSlacks().isEmpty());
+            assertTrue(result.getCompletionPercentages().isEmpty());
+
+            session.removeProject("Project1");
+            assertTrue(session.solve().isFeasible());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForkJoinHandlerTest {
+
+    // Registers a rollback in its own (forked) context and fails on negative parts
+    static class PartHandler implements Handler<Integer, Integer> {
+        private final AtomicInteger rollbacks;
+
+        PartHandler(AtomicInteger rollbacks) { this.rollbacks = rollbacks; }
+
+        @Override
+        public void setContext(BaseTransactionContext context) {
+            context.addRollbackCallback(rollbacks::incrementAndGet);
+        }
+
+        @Override
+        public Integer process(Integer input) {
+            if (input < 0) {
+                throw new IllegalArgumentException("negative part " + input);
+            }
+            return input * input;
+        }
+    }
+
+    private static List<Integer> parse(String csv) {
+        return Arrays.stream(csv.split(",")).map(Integer::valueOf).toList();
+    }
+
+    @Test
+    void testFanOutFanIn() {
+        AtomicInteger rollbacks = new AtomicInteger();
+        Handler<String, List<Integer>> split = ForkJoinHandlerTest::parse;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(split, new BaseTransactionContext())
+                .addForkJoinHandler(parts -> parts, () -> new PartHandler(rollbacks),
+                        squares -> squares.stream().mapToInt(Integer::intValue).sum());
+
+        assertEquals(1 + 4 + 9 + 16, pipeline.execute("1,2,3,4"));
+        assertEquals(0, rollbacks.get());
+    }
+
+    @Test
+    void testPartRollbacksReachPipeline() {
+        AtomicInteger rollbacks = new AtomicInteger();
+        Handler<String, List<Integer>> split = ForkJoinHandlerTest::parse;
+        BaseTransactionContext context = new BaseTransactionContext();
+        Pipeline<String, Integer> pipeline = new Pipeline<>(split, context)
+                .addForkJoinHandler(parts -> parts, () -> new PartHandler(rollbacks),
+                        squares -> squares.stream().mapToInt(Integer::intValue).sum());
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute("1,-2,3"));
+        assertEquals(3, rollbacks.get());
+        // They were merged into the execution's context, not into the pipeline's
+        assertTrue(context.getRollbackCallbacks().isEmpty());
+    }
+
+    @Test
+    void testFailureOnlyRollsBackItsOwnParts() {
+        AtomicInteger rollbacks = new AtomicInteger();
+        Handler<String, List<Integer>> split = ForkJoinHandlerTest::parse;
+        BaseTransactionContext context = new BaseTransactionContext();
+        Pipeline<String, Integer> pipeline = new Pipeline<>(split, context)
+                .addForkJoinHandler(parts -> parts, () -> new PartHandler(rollbacks),
+                        squares -> squares.stream().mapToInt(Integer::intValue).sum());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1 + 4, pipeline.execute("1,2"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute("1,-2,3"));
+
+        assertEquals(3, rollbacks.get());
+        assertTrue(context.getExecutedSteps().isEmpty());
+    }
+
+    @Test
+    void testPartsRegisteringThroughTheContextArgument() {
+        AtomicInteger rollbacks = new AtomicInteger();
+        Handler<String, List<Integer>> split = ForkJoinHandlerTest::parse;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(split, new BaseTransactionContext())
+                .addForkJoinHandler(parts -> parts, () -> new Handler<Integer, Integer>() {
+                    @Override
+                    public Integer process(Integer input) {
+                        throw new UnsupportedOperationException("needs the part's context");
+                    }
+
+                    @Override
+                    public Integer process(Integer input, BaseTransactionContext context) {
+                        context.addRollbackCallback(rollbacks::incrementAndGet);
+                        if (input < 0) {
+                            throw new IllegalArgumentException("negative part " + input);
+                        }
+                        return input;
+                    }
+                }, values -> values.stream().mapToInt(Integer::intValue).sum());
+
+        assertEquals(6, pipeline.execute("1,2,3"));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute("1,-2,3"));
+        assertEquals(3, rollbacks.get());
+    }
+}
@@ -0,0 +1,95 @@
+package org.acme;
+
+import io.smallrye.mutiny.TimeoutException;
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.handlers.HedgingHandler;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgingHandlerTest {
+
+    @Test
+    void testSlowAttemptIsHedgedAndCancelled() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        // The sixth call hangs, every other one answers right away
+        MutinyHandler<Integer, Integer> flaky = input -> calls.incrementAndGet() == 6
+                ? Uni.createFrom().item(input).onItem().delayIt().by(Duration.ofSeconds(10))
+                        .onCancellation().invoke(cancelled::incrementAndGet)
+                : Uni.createFrom().item(input * 10);
+        HedgingHandler<Integer, Integer> hedging = HedgingHandler.builder("hedge-win", flaky)
+                .minSamples(5)
+                .minDelay(Duration.ofMillis(20))
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * 10, hedging.process(i).await().atMost(Duration.ofSeconds(1)));
+        }
+        assertEquals(0, hedging.getMetrics().getHedgeCount());
+
+        assertEquals(70, hedging.process(7).await().atMost(Duration.ofSeconds(2)));
+
+        assertEquals(7, calls.get());
+        assertEquals(1, hedging.getMetrics().getHedgeCount());
+        assertEquals(1, hedging.getMetrics().getHedgeWinCount());
+        assertEquals(1, cancelled.get());
+        // The cancelled slow attempt is recorded along with the hedge that won
+        assertEquals(7, hedging.getAttemptLatency().getCount());
+    }
+
+    @Test
+    void testHedgeOutlivesFailedFirstAttempt() {
+        AtomicInteger calls = new AtomicInteger();
+        // The sixth call fails after the hedge was issued, the hedge answers later still
+        MutinyHandler<Integer, Integer> failing = input -> switch (calls.incrementAndGet()) {
+            case 6 -> Uni.createFrom().<Integer>failure(new IllegalStateException("down"))
+                    .onFailure().call(() -> Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofMillis(60)));
+            case 7 -> Uni.createFrom().item(input * 10).onItem().delayIt().by(Duration.ofMillis(120));
+            default -> Uni.createFrom().item(input * 10);
+        };
+        HedgingHandler<Integer, Integer> hedging = HedgingHandler.builder("hedge-after-failure", failing)
+                .minSamples(5)
+                .minDelay(Duration.ofMillis(20))
+                .build();
+        for (int i = 0; i < 5; i++) {
+            hedging.process(i).await().atMost(Duration.ofSeconds(1));
+        }
+
+        assertEquals(70, hedging.process(7).await().atMost(Duration.ofSeconds(2)));
+        assertEquals(1, hedging.getMetrics().getHedgeWinCount());
+
+        // Both attempts failing fails the call
+        MutinyHandler<Integer, Integer> down = input -> Uni.createFrom().<Integer>failure(new IllegalStateException("down"))
+                .onFailure().call(() -> Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofMillis(60)));
+        HedgingHandler<Integer, Integer> hedgingDown = HedgingHandler.builder("hedge-both-failed", down)
+                .minSamples(0)
+                .minDelay(Duration.ofMillis(20))
+                .build();
+        assertThrows(IllegalStateException.class, () -> hedgingDown.process(1).await().atMost(Duration.ofSeconds(2)));
+        assertEquals(1, hedgingDown.getMetrics().getHedgeCount());
+    }
+
+    @Test
+    void testTimeoutFallsBack() {
+        MutinyHandler<Integer, Integer> hanging = input -> Uni.createFrom().nothing();
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<Integer, Integer>(input -> Uni.createFrom().item(input))
+                .addHedgedHandler(HedgingHandler.builder("hedge-fallback", hanging)
+                        .timeout(Duration.ofMillis(50))
+                        .fallback(input -> -input)
+                        .build());
+
+        assertEquals(-3, pipeline.execute(3).await().atMost(Duration.ofSeconds(1)));
+
+        HedgingHandler<Integer, Integer> strict = HedgingHandler.builder("hedge-timeout", hanging)
+                .timeout(Duration.ofMillis(50))
+                .build();
+        assertThrows(TimeoutException.class, () -> strict.process(1).await().atMost(Duration.ofSeconds(1)));
+        assertEquals(1, strict.getMetrics().getTimeoutCount());
+    }
+}
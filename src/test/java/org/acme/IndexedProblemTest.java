@@ -0,0 +1,108 @@
+package org.acme;
+
+import org.acme.opt.IndexedProblem;
+import org.acme.opt.Project;
+import org.acme.opt.Resource;
+import org.acme.opt.ResourceIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedProblemTest {
+
+    @Test
+    void testRowsHoldNonZeroRequirementsByResourceId() {
+        List<Resource> resources = IntStream.range(0, 4).mapToObj(i -> new Resource("Resource" + i, 10 + i, 1)).toList();
+        Project project = new Project("Project0", Map.of("Resource3", 7, "Resource1", 2, "Resource2", 0, "Unknown", 5));
+
+        IndexedProblem problem = IndexedProblem.of(resources, List.of(project, new Project("Project1", Map.of())));
+
+        assertEquals(2, problem.nonZeroCount());
+        assertEquals(0, problem.rowStart(0));
+        assertEquals(2, problem.rowEnd(0));
+        assertEquals(1, problem.resourceOf(0));
+        assertEquals(2, problem.amount(0));
+        assertEquals(3, problem.resourceOf(1));
+        assertEquals(7, problem.requirement(0, 3));
+        assertEquals(0, problem.requirement(0, 2));
+        assertEquals(problem.rowStart(1), problem.rowEnd(1));
+        assertEquals(13, problem.capacity(problem.resourceId("Resource3")));
+        assertEquals(-1, problem.resourceId("Unknown"));
+    }
+
+    @Test
+    void testProjectsKeepSparseRowsOverASharedIndex() {
+        List<Resource> resources = IntStream.range(0, 5).mapToObj(i -> new Resource("Resource" + i, 10, 1)).toList();
+        ResourceIndex index = ResourceIndex.of(resources);
+        Project project = Project.fromDense("Project0", index, new int[]{0, 4, 0, 0, 9});
+
+        assertEquals(2, project.nonZeroCount());
+        assertEquals(Map.of("Resource1", 4, "Resource4", 9), project.getRequirements());
+        assertEquals(0, project.getRequirements().getOrDefault("Resource2", 0));
+
+        // Same resources in the same order: the row is used as is
+        IndexedProblem problem = IndexedProblem.of(new ArrayList<>(resources), List.of(project));
+        assertEquals(2, problem.nonZeroCount());
+        assertEquals(4, problem.resourceOf(1));
+        assertEquals(9, problem.requirement(0, 4));
+
+        // Other order: translated by name
+        IndexedProblem reversed = IndexedProblem.of(resources.reversed(), List.of(project));
+        assertEquals(0, reversed.resourceOf(0));
+        assertEquals(9, reversed.amount(0));
+        assertEquals(4, reversed.requirement(0, reversed.resourceId("Resource1")));
+    }
+
+    // 100k resources x 1k projects, 100 requirements each: building is linear in the non-zeros, the
+    // dense 100M-cell grid is never materialized
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testScalesToLargeSparseProblems() {
+        int resourceCount = 100_000;
+        int projectCount = 1_000;
+        int perProject = 100;
+        Random random = new Random(42);
+        List<Resource> resources = new ArrayList<>(resourceCount);
+        for (int r = 0; r < resourceCount; r++) {
+            resources.add(new Resource("Resource" + r, 50, 1));
+        }
+        List<Project> projects = new ArrayList<>(projectCount);
+        long expectedTotal = 0;
+        for (int p = 0; p < projectCount; p++) {
+            Map<String, Integer> requirements = new HashMap<>();
+            while (requirements.size() < perProject) {
+                requirements.put("Resource" + random.nextInt(resourceCount), 1 + random.nextInt(20));
+            }
+            expectedTotal += requirements.values().stream().mapToLong(Integer::longValue).sum();
+            projects.add(new Project("Project" + p, requirements));
+        }
+
+        IndexedProblem problem = IndexedProblem.of(resources, projects);
+
+        assertEquals(resourceCount, problem.resourceCount());
+        assertEquals(projectCount, problem.projectCount());
+        assertEquals(projectCount * perProject, problem.nonZeroCount());
+        long total = 0;
+        for (int p = 0; p < projectCount; p++) {
+            for (int i = problem.rowStart(p); i < problem.rowEnd(p); i++) {
+                if (i > problem.rowStart(p)) {
+                    assertTrue(problem.resourceOf(i - 1) < problem.resourceOf(i));
+                }
+                total += problem.amount(i);
+            }
+        }
+        assertEquals(expectedTotal, total);
+        Project last = projects.get(projectCount - 1);
+        last.getRequirements().forEach((name, amount) ->
+                assertEquals(amount, problem.requirement(projectCount - 1, problem.resourceId(name))));
+    }
+}
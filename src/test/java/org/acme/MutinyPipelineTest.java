@@ -1,15 +1,29 @@
 package org.acme;
 
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.subscription.MultiEmitter;
 import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.context.ContextPool;
 import org.acme.pattern.MutinyHandler;
 import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.StreamOrder;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 public class MutinyPipelineTest {
@@ -64,4 +78,157 @@ public class MutinyPipelineTest {
         System.out.println("Final async result: " + result + " on thread: " + Thread.currentThread().toString());
         assertEquals("start-asyncStep1-asyncStep2", result);
     }
+
+    // Later items finish first, and the number of concurrent calls is tracked
+    static class TrackingHandler implements MutinyHandler<Integer, Integer> {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public Uni<Integer> process(Integer input) {
+            return Uni.createFrom().item(input)
+                    .onSubscription().invoke(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .onItem().delayIt().by(Duration.ofMillis(20 - input % 20))
+                    .onTermination().invoke(inFlight::decrementAndGet);
+        }
+    }
+
+    @Test
+    void testOrderedStreamWithBoundedConcurrency() {
+        TrackingHandler tracking = new TrackingHandler();
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(tracking, new BaseTransactionContext())
+                .addHandler(i -> Uni.createFrom().item(i * 2));
+
+        List<Integer> inputs = IntStream.range(0, 40).boxed().collect(Collectors.toList());
+        List<Integer> result = pipeline.stream(Multi.createFrom().iterable(inputs), 4, StreamOrder.ORDERED)
+                .collect().asList().await().indefinitely();
+
+        assertEquals(inputs.stream().map(i -> i * 2).collect(Collectors.toList()), result);
+        assertTrue(tracking.maxInFlight.get() <= 4);
+    }
+
+    @Test
+    void testUnorderedStreamWithBoundedConcurrency() {
+        TrackingHandler tracking = new TrackingHandler();
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(tracking, new BaseTransactionContext());
+
+        List<Integer> inputs = IntStream.range(0, 40).boxed().collect(Collectors.toList());
+        List<Integer> result = pipeline.stream(Multi.createFrom().iterable(inputs), 8, StreamOrder.UNORDERED)
+                .collect().asList().await().indefinitely();
+
+        assertEquals(new HashSet<>(inputs), new HashSet<>(result));
+        assertTrue(tracking.maxInFlight.get() <= 8);
+    }
+
+    @Test
+    void testConcurrentExecutionsGetIsolatedContexts() {
+        ContextPool pool = new ContextPool(16);
+        // First stage stores the input in its execution context, the second one reads it back
+        MutinyHandler<Integer, Integer> remember = MutinyHandler.withContext((input, context) -> {
+            context.put("input", input);
+            return Uni.createFrom().item(input).onItem().delayIt().by(Duration.ofMillis(1 + input % 7));
+        });
+        MutinyHandler<Integer, String> recall = MutinyHandler.withContext((input, context) ->
+                Uni.createFrom().item(input + "=" + context.get("input")));
+        MutinyPipeline<Integer, String> pipeline = new MutinyPipeline<>(remember, pool).addHandler(recall);
+
+        List<String> results = Multi.createFrom().range(0, 200)
+                .onItem().transformToUni(pipeline::execute).merge(64)
+                .collect().asList().await().indefinitely();
+
+        assertEquals(200, results.size());
+        results.forEach(result -> {
+            String[] parts = result.split("=");
+            assertEquals(parts[0], parts[1]);
+        });
+        assertTrue(pool.getReusedCount() > 0);
+    }
+
+    @Test
+    void testOrderedStreamDoesNotWaitForFullWindows() {
+        MutinyHandler<Integer, Integer> remember = MutinyHandler.withContext((input, context) -> {
+            context.put("input", input);
+            return Uni.createFrom().item(input).onItem().delayIt().by(Duration.ofMillis(input % 2 == 0 ? 20 : 1));
+        });
+        MutinyHandler<Integer, String> recall = MutinyHandler.withContext((input, context) ->
+                Uni.createFrom().item(input + "=" + context.get("input")));
+        MutinyPipeline<Integer, String> pipeline = new MutinyPipeline<>(remember, new ContextPool(16)).addHandler(recall);
+
+        AtomicReference<MultiEmitter<? super Integer>> emitter = new AtomicReference<>();
+        AssertSubscriber<String> results = pipeline.stream(Multi.createFrom().<Integer>emitter(emitter::set), 4)
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        // A single item goes through without three more to fill a window
+        emitter.get().emit(0);
+        results.awaitItems(1);
+        for (int i = 1; i < 7; i++) {
+            emitter.get().emit(i);
+        }
+        emitter.get().complete();
+
+        results.awaitCompletion();
+        assertEquals(IntStream.range(0, 7).mapToObj(i -> i + "=" + i).collect(Collectors.toList()), results.getItems());
+    }
+
+    @Test
+    void testOrderedStreamHonoursBackpressure() {
+        TrackingHandler tracking = new TrackingHandler();
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(tracking, new BaseTransactionContext());
+        AtomicInteger pulled = new AtomicInteger();
+
+        AssertSubscriber<Integer> results = pipeline
+                .stream(Multi.createFrom().range(0, 100).onItem().invoke(pulled::incrementAndGet), 4)
+                .subscribe().withSubscriber(AssertSubscriber.create(2));
+
+        results.awaitItems(2);
+        // Completed items keep their slot until they are emitted: no unbounded read-ahead
+        Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofMillis(100)).await().indefinitely();
+        assertEquals(List.of(0, 1), results.getItems());
+        assertTrue(pulled.get() <= 2 + 2 * 4, "pulled " + pulled.get());
+
+        results.request(98);
+        results.awaitCompletion();
+        assertEquals(IntStream.range(0, 100).boxed().collect(Collectors.toList()), results.getItems());
+        assertTrue(tracking.maxInFlight.get() <= 4);
+    }
+
+    @Test
+    void testFailedStreamItemsReturnTheirContexts() {
+        ContextPool pool = new ContextPool(8);
+        MutinyHandler<Integer, Integer> failOnOdd = input -> input % 2 == 1
+                ? Uni.createFrom().failure(new IllegalArgumentException("odd " + input))
+                : Uni.createFrom().item(input);
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(failOnOdd, pool)
+                .addHandler(input -> Uni.createFrom().item(input * 2));
+
+        for (int i = 0; i < 50; i++) {
+            assertThrows(IllegalArgumentException.class, () -> pipeline.stream(Multi.createFrom().items(0, 1), 1)
+                    .collect().asList().await().atMost(Duration.ofSeconds(5)));
+        }
+
+        assertTrue(pool.getCreatedCount() <= 2, "created " + pool.getCreatedCount());
+    }
+
+    @Test
+    void testCancelledItemsKeepTheContextTheirStageWritesTo() {
+        ContextPool pool = new ContextPool(8);
+        List<BaseTransactionContext> running = new CopyOnWriteArrayList<>();
+        // Never completes: the stage is still running when its item is cancelled
+        MutinyHandler<Integer, Integer> stuck = MutinyHandler.withContext((input, context) -> {
+            running.add(context);
+            return Uni.createFrom().nothing();
+        });
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(stuck, pool);
+
+        pipeline.stream(Multi.createFrom().items(0, 1), 2).subscribe().with(ignored -> {
+        }).cancel();
+        pipeline.execute(2).subscribe().with(ignored -> {
+        }).cancel();
+
+        assertEquals(3, running.size());
+        for (int i = 0; i < pool.capacity(); i++) {
+            BaseTransactionContext context = pool.acquire();
+            assertTrue(running.stream().noneMatch(stage -> stage == context));
+        }
+    }
 }
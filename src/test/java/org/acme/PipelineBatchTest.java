@@ -0,0 +1,121 @@
+package org.acme;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.BatchMode;
+import org.acme.pattern.pipeline.BatchResult;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelineBatchTest {
+
+    private static Integer failOnEmpty(String input) {
+        if (input.isEmpty()) {
+            throw new IllegalArgumentException("empty input");
+        }
+        return input.length();
+    }
+
+    @Test
+    void testSyncBatchPerItem() {
+        Handler<String, Integer> length = PipelineBatchTest::failOnEmpty;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(length, new BaseTransactionContext())
+                .addHandler(i -> i * 10);
+
+        BatchResult<Integer> result = pipeline.executeBatch(List.of("a", "", "abc"), BatchMode.PER_ITEM);
+
+        assertEquals(Arrays.asList(10, null, 30), result.getResults());
+        assertEquals(1, result.getFailures().size());
+        assertInstanceOf(IllegalArgumentException.class, result.getFailures().get(1));
+    }
+
+    @Test
+    void testSyncBatchAllOrNothing() {
+        Handler<String, Integer> length = PipelineBatchTest::failOnEmpty;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(length, new BaseTransactionContext());
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.executeBatch(List.of("a", "", "abc")));
+    }
+
+    @Test
+    void testMutinyBatchKeepsInputOrder() {
+        MutinyHandler<String, Integer> length = input -> Uni.createFrom().item(() -> failOnEmpty(input));
+        MutinyPipeline<String, Integer> pipeline = new MutinyPipeline<>(length, new BaseTransactionContext());
+
+        BatchResult<Integer> result = pipeline
+                .executeBatch(Multi.createFrom().items("abcd", "", "ab"), BatchMode.PER_ITEM)
+                .await().indefinitely();
+
+        assertEquals(Arrays.asList(4, null, 2), result.getResults());
+        assertFalse(result.isSuccessful());
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline
+                .executeBatch(Multi.createFrom().items("abcd", "", "ab"))
+                .await().indefinitely());
+    }
+
+    @Test
+    void testSyncBatchCompensatesOnlyTheFailedItem() {
+        List<String> rolledBack = new CopyOnWriteArrayList<>();
+        Handler<String, String> reserve = new Handler<>() {
+            @Override
+            public String process(String input) {
+                throw new UnsupportedOperationException("needs the execution context");
+            }
+
+            @Override
+            public String process(String input, BaseTransactionContext context) {
+                context.addRollbackCallback(() -> rolledBack.add(input));
+                return input;
+            }
+        };
+        Pipeline<String, Integer> pipeline = new Pipeline<>(reserve, new BaseTransactionContext())
+                .addHandler(PipelineBatchTest::failOnEmpty);
+
+        BatchResult<Integer> result = pipeline.executeBatch(List.of("a", "", "abc"), BatchMode.PER_ITEM);
+
+        assertEquals(Arrays.asList(1, null, 3), result.getResults());
+        assertEquals(List.of(""), rolledBack);
+
+        // All or nothing: the failed item and the ones merged before it
+        rolledBack.clear();
+        assertThrows(IllegalArgumentException.class, () -> pipeline.executeBatch(List.of("a", "", "abc")));
+        assertEquals(List.of("", "a"), rolledBack);
+    }
+
+    @Test
+    void testMutinyBatchCompensatesOnlyTheFailedItem() {
+        List<String> rolledBack = new CopyOnWriteArrayList<>();
+        MutinyHandler<String, String> reserve = new MutinyHandler<>() {
+            @Override
+            public Uni<String> process(String input) {
+                return Uni.createFrom().failure(new UnsupportedOperationException("needs the execution context"));
+            }
+
+            @Override
+            public Uni<String> process(String input, BaseTransactionContext context) {
+                context.addRollbackCallback(() -> rolledBack.add(input));
+                return Uni.createFrom().item(input);
+            }
+        };
+        MutinyPipeline<String, Integer> pipeline = new MutinyPipeline<>(reserve)
+                .addHandler(input -> Uni.createFrom().item(() -> failOnEmpty(input)));
+
+        BatchResult<Integer> result = pipeline
+                .executeBatch(Multi.createFrom().items("a", "", "abc"), BatchMode.PER_ITEM)
+                .await().indefinitely();
+
+        assertEquals(Arrays.asList(1, null, 3), result.getResults());
+        assertEquals(List.of(""), rolledBack);
+    }
+}
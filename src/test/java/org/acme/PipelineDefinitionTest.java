@@ -0,0 +1,97 @@
+package org.acme;
+
+import org.acme.pattern.Handler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.context.ContextPool;
+import org.acme.pattern.handlers.DatabaseHandler;
+import org.acme.pattern.pipeline.Pipeline;
+import org.acme.pattern.pipeline.PipelineDefinition;
+import org.acme.pattern.pipeline.VirtualThreadPipelineExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelineDefinitionTest {
+
+    private static Integer failOnOdd(Integer input) {
+        if (input % 2 != 0) {
+            throw new IllegalArgumentException("odd " + input);
+        }
+        return input;
+    }
+
+    @Test
+    void testSharedDefinitionIsolatesRollbacks() {
+        Map<Integer, Integer> rows = new ConcurrentHashMap<>();
+        AtomicInteger rollbacks = new AtomicInteger();
+        // One DatabaseHandler instance shared by every execution
+        DatabaseHandler<Integer, Integer, Map<Integer, Integer>> insert = new DatabaseHandler<>(rows,
+                (value, repository) -> { repository.put(value, value); return value; },
+                rollbacks::incrementAndGet);
+        PipelineDefinition<Integer, Integer> definition = PipelineDefinition.of("insert", insert)
+                .addHandler(PipelineDefinitionTest::failOnOdd);
+
+        List<CompletableFuture<Integer>> results;
+        try (VirtualThreadPipelineExecutor<Integer, Integer> executor =
+                     new VirtualThreadPipelineExecutor<>(definition::execute)) {
+            results = executor.submitAll(IntStream.range(0, 100).boxed().toList());
+        }
+
+        long failed = results.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        assertEquals(50, failed);
+        // Each failing execution compensated its own insert only
+        assertEquals(50, rollbacks.get());
+    }
+
+    @Test
+    void testContextsAreRecycled() {
+        ContextPool pool = new ContextPool(8);
+        PipelineDefinition<Integer, Integer> definition = PipelineDefinition.<Integer, Integer>of(i -> i + 1)
+                .addHandler(i -> i * 2)
+                .withContextPool(pool);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals((i + 1) * 2, definition.execute(i));
+        }
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(99, pool.getReusedCount());
+    }
+
+    @Test
+    void testExecutorIsolatesPipelineExecutions() {
+        AtomicInteger rollbacks = new AtomicInteger();
+        Handler<Integer, Integer> register = new Handler<>() {
+            @Override
+            public Integer process(Integer input) {
+                return input;
+            }
+
+            @Override
+            public Integer process(Integer input, BaseTransactionContext context) {
+                context.addRollbackCallback(rollbacks::incrementAndGet);
+                return input;
+            }
+        };
+        BaseTransactionContext context = new BaseTransactionContext();
+        Pipeline<Integer, Integer> pipeline = new Pipeline<>(register, context)
+                .addHandler(PipelineDefinitionTest::failOnOdd);
+
+        List<CompletableFuture<Integer>> results;
+        try (VirtualThreadPipelineExecutor<Integer, Integer> executor = VirtualThreadPipelineExecutor.of(pipeline)) {
+            results = executor.submitAll(IntStream.range(0, 100).boxed().toList());
+        }
+
+        assertEquals(50, results.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+        assertEquals(50, rollbacks.get());
+        assertTrue(context.getRollbackCallbacks().isEmpty());
+        assertTrue(context.getExecutedSteps().isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package org.acme;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.metrics.LatencyHistogram;
+import org.acme.pattern.metrics.PipelineMetrics;
+import org.acme.pattern.metrics.PipelineMetricsBinder;
+import org.acme.pattern.metrics.StageMetrics;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelineMetricsTest {
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.03);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.03);
+        assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    void testStagesAreRecordedByName() {
+        Handler<String, Integer> parse = Integer::valueOf;
+        Pipeline<String, Integer> pipeline = new Pipeline<>("metrics-parse", parse, new BaseTransactionContext())
+                .addHandler("metrics-invert", i -> 100 / i);
+
+        pipeline.execute("5");
+        pipeline.build().execute("10");
+        assertThrows(ArithmeticException.class, () -> pipeline.execute("0"));
+
+        StageMetrics parseMetrics = PipelineMetrics.stage("metrics-parse");
+        StageMetrics invertMetrics = PipelineMetrics.stage("metrics-invert");
+        assertEquals(3, parseMetrics.getSuccessCount());
+        assertEquals(2, invertMetrics.getSuccessCount());
+        assertEquals(1, invertMetrics.getFailureCount());
+    }
+
+    @Test
+    void testPositionalStageNamesAreStable() {
+        Handler<Integer, Integer> increment = i -> i + 1;
+        Pipeline<Integer, Integer> first = Pipeline.named("metrics-first", increment, new BaseTransactionContext())
+                .addHandler(i -> i * 2)
+                .addForkJoinHandler(List::of, () -> i -> i, List::getFirst);
+        Pipeline<Integer, Integer> second = Pipeline.named("metrics-second", increment, new BaseTransactionContext())
+                .addHandler(i -> i * 3);
+
+        first.execute(1);
+        second.execute(1);
+        second.execute(2);
+
+        assertEquals(1, PipelineMetrics.stage("metrics-first.stage1").getSuccessCount());
+        assertEquals(1, PipelineMetrics.stage("metrics-first.stage2").getSuccessCount());
+        assertEquals(2, PipelineMetrics.stage("metrics-second.stage1").getSuccessCount());
+
+        // Rebuilding a pipeline reuses its stages' metrics instead of registering new ones
+        PipelineMetrics.stage("pipeline.stage0");
+        PipelineMetrics.stage("pipeline.stage1");
+        int registered = PipelineMetrics.stages().size();
+        for (int i = 0; i < 100; i++) {
+            Pipeline.named("metrics-second", increment, new BaseTransactionContext()).addHandler(j -> j * 3).execute(i);
+            new Pipeline<>(increment, new BaseTransactionContext()).addHandler(j -> j * 3).execute(i);
+        }
+        assertEquals(registered, PipelineMetrics.stages().size());
+        assertEquals(102, PipelineMetrics.stage("metrics-second.stage1").getSuccessCount());
+        assertTrue(PipelineMetrics.stage("pipeline.stage1").getSuccessCount() >= 100);
+    }
+
+    @Test
+    void testMutinyStagesAndMicrometerBinding() {
+        MutinyHandler<Integer, Integer> first = i -> Uni.createFrom().item(i + 1);
+        MutinyPipeline<Integer, Integer> pipeline = new MutinyPipeline<>(first)
+                .addHandler("metrics-async-double", i -> Uni.createFrom().item(i * 2));
+        assertEquals(4, pipeline.execute(1).await().indefinitely());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new PipelineMetricsBinder().bindTo(registry);
+
+        assertEquals(1.0, registry.get("pipeline.stage.calls")
+                .tag("stage", "metrics-async-double").tag("outcome", "success")
+                .functionCounter().count());
+        assertNotNull(registry.get("pipeline.stage.latency")
+                .tag("stage", "metrics-async-double").tag("quantile", "0.99").timeGauge());
+    }
+}
@@ -0,0 +1,44 @@
+package org.acme;
+
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.events.RingBufferStepEventSink;
+import org.acme.pattern.events.StepEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferStepEventSinkTest {
+
+    @Test
+    void testEveryEventIsDrainedOrCounted() {
+        AtomicInteger consumed = new AtomicInteger();
+        RingBufferStepEventSink sink = new RingBufferStepEventSink(1024, event -> true, event -> consumed.incrementAndGet());
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> sink.publish(StepEvent.step("step" + i)));
+        sink.close();
+
+        assertEquals(100_000, consumed.get() + sink.getDroppedCount());
+    }
+
+    @Test
+    void testContextPublishesFilteredSteps() {
+        ConcurrentLinkedQueue<StepEvent> received = new ConcurrentLinkedQueue<>();
+        RingBufferStepEventSink sink = new RingBufferStepEventSink(64,
+                event -> event.message().startsWith("keep"), received::add);
+        BaseTransactionContext context = new BaseTransactionContext();
+        context.setStepEventSink(sink);
+
+        context.logStep("keep: loaded");
+        context.logStep("drop: noise");
+        sink.close();
+
+        assertEquals(2, context.getExecutedSteps().size());
+        assertEquals(1, received.size());
+        assertTrue(received.peek().message().startsWith("keep"));
+    }
+}
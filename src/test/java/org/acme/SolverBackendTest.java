@@ -0,0 +1,70 @@
+package org.acme;
+
+import org.acme.opt.AllocationResult;
+import org.acme.opt.FeasibilitySession;
+import org.acme.opt.MaximizeResourceUsage;
+import org.acme.opt.Project;
+import org.acme.opt.Resource;
+import org.acme.opt.SolverBackend;
+import org.acme.opt.SolverSettings;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolverBackendTest {
+
+    @Test
+    void testAutomaticSelection() {
+        assertEquals(SolverBackend.GLOP, SolverBackend.select(1_000_000, false, 8));
+        assertEquals(SolverBackend.SCIP, SolverBackend.select(100, true, 8));
+        assertEquals(SolverBackend.SCIP, SolverBackend.select(1_000_000, true, 1));
+        assertEquals(SolverBackend.CP_SAT, SolverBackend.select(1_000_000, true, 8));
+
+        SolverSettings fixed = new SolverSettings.Builder().backend(SolverBackend.CBC).build();
+        assertEquals(SolverBackend.CBC, fixed.backendFor(100, false));
+        assertNull(SolverSettings.defaults().getBackend());
+        assertThrows(IllegalArgumentException.class, () -> new SolverSettings.Builder().threads(0).build());
+    }
+
+    @Test
+    void testEveryBackendReachesTheSameAllocation() {
+        List<Resource> resources = List.of(new Resource("A", 5, 1), new Resource("B", 3, 1), new Resource("C", 10, 1));
+        List<Project> projects = List.of(
+                new Project("P0", Map.of("A", 4, "B", 2)),
+                new Project("P1", Map.of("A", 3, "C", 12)));
+
+        for (SolverBackend backend : SolverBackend.values()) {
+            SolverSettings settings = new SolverSettings.Builder()
+                    .backend(backend)
+                    .threads(2)
+                    .timeLimit(Duration.ofSeconds(10))
+                    .build();
+            AllocationResult result = new MaximizeResourceUsage(resources, projects, settings).allocate();
+
+            assertTrue(result.isSolved(), backend.name());
+            assertEquals(17, result.totalUsed(), backend.name());
+        }
+    }
+
+    @Test
+    void testSessionKeepsItsBackend() {
+        List<Resource> resources = List.of(new Resource("A", 5, 1));
+        List<Project> projects = List.of(new Project("P0", Map.of("A", 7)));
+
+        try (FeasibilitySession session = new FeasibilitySession(resources, projects)) {
+            assertEquals(SolverBackend.GLOP, session.getBackend());
+            assertEquals(2.0, session.solve().getResourceSlacks().values().iterator().next(), 1e-6);
+        }
+        SolverSettings scip = new SolverSettings.Builder().backend(SolverBackend.SCIP).build();
+        try (FeasibilitySession session = new FeasibilitySession(resources, projects, scip)) {
+            assertEquals(SolverBackend.SCIP, session.getBackend());
+            assertEquals(2.0, session.solve().getResourceSlacks().values().iterator().next(), 1e-6);
+            session.setCapacity("A", 4);
+            assertEquals(3.0, session.solve().getResourceSlacks().values().iterator().next(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.acme;
+
+import io.smallrye.mutiny.Uni;
+import org.acme.pattern.Handler;
+import org.acme.pattern.MutinyHandler;
+import org.acme.pattern.cache.CacheStats;
+import org.acme.pattern.cache.EvictionPolicy;
+import org.acme.pattern.cache.StageCache;
+import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.pipeline.MutinyPipeline;
+import org.acme.pattern.pipeline.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StageCacheTest {
+
+    @Test
+    void testPipelineSkipsCachedStage() {
+        AtomicInteger calls = new AtomicInteger();
+        StageCache<String, Integer> cache = StageCache.builder().maxSize(10).build();
+        Handler<String, String> trim = String::trim;
+        Pipeline<String, Integer> pipeline = new Pipeline<>(trim, new BaseTransactionContext())
+                .addCachedHandler(value -> {
+                    calls.incrementAndGet();
+                    return value.length();
+                }, cache);
+
+        assertEquals(3, pipeline.execute(" abc"));
+        assertEquals(3, pipeline.execute("abc "));
+        assertEquals(1, calls.get());
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void testLruAndLfuEvictDifferentKeys() {
+        StageCache<Integer, Integer> lru = StageCache.builder().maxSize(2).policy(EvictionPolicy.LRU).build();
+        StageCache<Integer, Integer> lfu = StageCache.builder().maxSize(2).policy(EvictionPolicy.LFU).build();
+        for (StageCache<Integer, Integer> cache : List.of(lru, lfu)) {
+            // 1 is read three times, 2 once but more recently
+            for (int key : new int[]{1, 1, 1, 2, 3}) {
+                cache.get(key, k -> k * 10);
+            }
+        }
+
+        AtomicInteger loads = new AtomicInteger();
+        lru.get(1, k -> loads.incrementAndGet());
+        assertEquals(1, loads.get(), "LRU evicted the least recently read key");
+        lfu.get(1, k -> loads.incrementAndGet());
+        assertEquals(1, loads.get(), "LFU kept the most read key");
+        assertEquals(1, lfu.stats().getEvictions());
+    }
+
+    @Test
+    void testTtlExpiresEntries() throws InterruptedException {
+        StageCache<String, Integer> cache = StageCache.builder().ttl(Duration.ofMillis(20)).build();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", k -> loads.incrementAndGet());
+        Thread.sleep(40);
+        cache.get("a", k -> loads.incrementAndGet());
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        StageCache<String, Integer> cache = StageCache.builder().build();
+        MutinyHandler<String, Integer> slowLookup = key -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(pending);
+        };
+        MutinyPipeline<String, Integer> pipeline = new MutinyPipeline<String, String>(Uni.createFrom()::item)
+                .addCachedHandler(slowLookup, cache);
+
+        CompletableFuture<Integer> first = pipeline.execute("k").subscribeAsCompletionStage();
+        CompletableFuture<Integer> second = pipeline.execute("k").subscribeAsCompletionStage();
+        pending.complete(42);
+
+        assertEquals(42, first.join());
+        assertEquals(42, second.join());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testCancelledSubscriberDoesNotPoisonEntry() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        StageCache<String, Integer> cache = StageCache.builder().build();
+        MutinyHandler<String, Integer> slowLookup = key -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(pending);
+        };
+        MutinyPipeline<String, Integer> pipeline = new MutinyPipeline<String, String>(Uni.createFrom()::item)
+                .addCachedHandler(slowLookup, cache);
+
+        // Times out and cancels its subscription while the load is still running
+        CompletableFuture<Integer> impatient = pipeline.execute("k")
+                .ifNoItem().after(Duration.ofMillis(10)).fail()
+                .subscribeAsCompletionStage();
+        assertThrows(Exception.class, impatient::join);
+        CompletableFuture<Integer> patient = pipeline.execute("k").subscribeAsCompletionStage();
+        pending.complete(42);
+
+        assertEquals(42, patient.join());
+        assertEquals(42, pipeline.execute("k").await().indefinitely());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testFailedLoadsAreEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+        StageCache<String, Integer> cache = StageCache.builder().build();
+        CompletableFuture<Integer> failed = cache.getAsync("k", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("down"));
+        });
+        assertThrows(Exception.class, failed::join);
+        CompletableFuture<Integer> cancelled = new CompletableFuture<>();
+        cache.getAsync("c", key -> cancelled);
+        cancelled.cancel(false);
+        assertEquals(0, cache.size());
+
+        assertEquals(7, cache.getAsync("k", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(7);
+        }).join());
+        assertEquals(2, loads.get());
+    }
+}
@@ -1,12 +1,17 @@
 package org.acme;
 
+import org.acme.pattern.compensation.Compensation;
 import org.acme.pattern.context.BaseTransactionContext;
+import org.acme.pattern.context.ContextKey;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
@@ -52,4 +57,36 @@ public class TestTransactionAdd {
         String strResult = context.getIntermediateResult();
         assertEquals("string", strResult);
     }
+
+    private static final ContextKey<Integer> COUNT = ContextKey.of("count", Integer.class);
+    private static final ContextKey<String> OWNER = ContextKey.of("owner", String.class);
+
+    @Test
+    void testTypedSlots() {
+        context.put(COUNT, 3);
+        context.put(OWNER, "pipeline");
+        context.put("legacy", 7);
+
+        int count = context.get(COUNT);
+        assertEquals(3, count);
+        assertEquals("pipeline", context.get(OWNER));
+        assertEquals(7, (Integer) context.get("legacy"));
+
+        BaseTransactionContext child = context.fork();
+        assertEquals("pipeline", child.get(OWNER));
+
+        assertEquals(3, context.remove(COUNT));
+        assertNull(context.get(COUNT));
+    }
+
+    @Test
+    void testConcurrentStepsAndCallbacks() {
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            context.getExecutedSteps().add("step" + i);
+            context.addRollbackCallback(() -> { });
+        });
+        assertEquals(10_000, context.getExecutedSteps().size());
+        assertEquals(10_000, context.getRollbackCallbacks().size());
+        assertEquals(10_000, context.getCompensations().stream().map(Compensation::getName).distinct().count());
+    }
 }